@@ -28,8 +28,9 @@ CREATE TABLE `call_history`  (
   `session_amount` int NULL DEFAULT 0 COMMENT '该局获得金额',
   `call_time` timestamp NULL DEFAULT CURRENT_TIMESTAMP COMMENT '点名时间',
   PRIMARY KEY (`id`) USING BTREE,
-  INDEX `idx_duck_name`(`duck_name` ASC) USING BTREE,
-  INDEX `idx_call_time`(`call_time` ASC) USING BTREE
+  INDEX `idx_call_time`(`call_time` ASC) USING BTREE,
+  INDEX `idx_duck_time`(`duck_name` ASC, `call_time` ASC) USING BTREE,
+  INDEX `idx_duck_summary`(`duck_name` ASC, `call_time` ASC, `was_used` ASC, `session_amount` ASC) USING BTREE
 ) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_unicode_ci COMMENT = '点名历史记录' ROW_FORMAT = Dynamic;
 
 -- ----------------------------
@@ -0,0 +1,51 @@
+package Game0_11;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 代码分析器基准测试：MultiLanguageAnalyzer 与 CFunctionAnalyzer 扫描合成代码树
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalyzerBenchmark {
+
+    @Param({"200", "2000"})
+    public int files;
+
+    private Path mixedRoot;
+    private Path cRoot;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        mixedRoot = SyntheticCorpus.generateMixed(20251213L, files, 20);
+        cRoot = SyntheticCorpus.generateC(20251213L, files * 20, 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws IOException {
+        SyntheticCorpus.delete(mixedRoot);
+        SyntheticCorpus.delete(cRoot);
+    }
+
+    @Benchmark
+    public Object multiLanguageAnalyzeFolder() throws IOException {
+        MultiLanguageAnalyzer analyzer = new MultiLanguageAnalyzer();
+        analyzer.analyzeFolder(mixedRoot.toString());
+        return analyzer.getLanguageStatistics();
+    }
+
+    @Benchmark
+    public Object cFunctionAnalyzeFolder() throws IOException {
+        CFunctionAnalyzer analyzer = new CFunctionAnalyzer();
+        analyzer.analyzeFolder(cRoot.toString());
+        return analyzer.calculateStatistics();
+    }
+}
@@ -0,0 +1,49 @@
+package Game0_11;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ExportUtil 导出 XLSX 的基准测试，函数数量从 1 万到 100 万
+ * 每次调用都完整写出一个 xlsx 文件，所以用单次调用模式计时
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ExportBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int functions;
+
+    private Path corpus;
+    private Path output;
+    private CFunctionAnalyzer analyzer;
+    private CFunctionStatistics statistics;
+
+    @Setup(Level.Trial)
+    public void analyze() throws IOException {
+        corpus = SyntheticCorpus.generateC(20251213L, functions, 200);
+        analyzer = new CFunctionAnalyzer();
+        analyzer.analyzeFolder(corpus.toString());
+        statistics = analyzer.calculateStatistics();
+        output = Files.createTempFile("export-", ".xlsx");
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws IOException {
+        SyntheticCorpus.delete(corpus);
+        Files.deleteIfExists(output);
+    }
+
+    @Benchmark
+    public boolean exportToXLSX() {
+        return ExportUtil.exportStatistics(analyzer, statistics, "xlsx", output.toString());
+    }
+}
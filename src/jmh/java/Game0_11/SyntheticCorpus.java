@@ -0,0 +1,96 @@
+package Game0_11;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * 基准测试用的合成代码库
+ * 由固定种子生成 C / C++ / Java / Python / C# 源文件，每次生成的内容完全相同，
+ * 保证不同版本之间的基准测试结果可以直接比较。
+ */
+public class SyntheticCorpus {
+
+    private static final String[] EXTENSIONS = {".c", ".cpp", ".java", ".py", ".cs"};
+
+    private SyntheticCorpus() {}
+
+    /**
+     * 生成一个多语言代码树
+     * @param files 文件总数，按语言轮流分配，每 20 个文件一个子目录
+     * @param functionsPerFile 每个文件的函数个数
+     */
+    public static Path generateMixed(long seed, int files, int functionsPerFile) throws IOException {
+        Path root = Files.createTempDirectory("corpus-mixed-");
+        Random random = new Random(seed);
+        for (int f = 0; f < files; f++) {
+            String ext = EXTENSIONS[f % EXTENSIONS.length];
+            Path dir = root.resolve("pkg" + (f / 20));
+            Files.createDirectories(dir);
+            try (BufferedWriter w = Files.newBufferedWriter(dir.resolve("File" + f + ext), StandardCharsets.UTF_8)) {
+                writeFile(w, ext, "File" + f, functionsPerFile, random);
+            }
+        }
+        return root;
+    }
+
+    /**
+     * 生成只包含 C 文件的代码树，函数总数为 totalFunctions
+     */
+    public static Path generateC(long seed, int totalFunctions, int functionsPerFile) throws IOException {
+        Path root = Files.createTempDirectory("corpus-c-");
+        Random random = new Random(seed);
+        int files = (totalFunctions + functionsPerFile - 1) / functionsPerFile;
+        for (int f = 0; f < files; f++) {
+            Path dir = root.resolve("mod" + (f / 50));
+            Files.createDirectories(dir);
+            int count = Math.min(functionsPerFile, totalFunctions - f * functionsPerFile);
+            try (BufferedWriter w = Files.newBufferedWriter(dir.resolve("unit" + f + ".c"), StandardCharsets.UTF_8)) {
+                writeFile(w, ".c", "unit" + f, count, random);
+            }
+        }
+        return root;
+    }
+
+    private static void writeFile(BufferedWriter w, String ext, String name, int functions, Random random) throws IOException {
+        boolean python = ext.equals(".py");
+        boolean classBased = ext.equals(".java") || ext.equals(".cs");
+        w.write(python ? "# " + name + " generated\n\n" : "/* " + name + " generated */\n\n");
+        if (classBased) w.write("public class " + name + " {\n");
+        for (int i = 0; i < functions; i++) {
+            int body = 2 + random.nextInt(30);
+            String fn = "func_" + name + "_" + i;
+            if (python) {
+                w.write("def " + fn + "(a, b):\n");
+                for (int l = 0; l < body; l++) {
+                    w.write(l % 7 == 3 ? "    # step " + l + "\n" : "    a = a + b * " + l + "\n");
+                }
+                w.write("    return a\n\n");
+            } else {
+                String indent = classBased ? "    " : "";
+                String modifier = classBased ? "public static " : "";
+                w.write(indent + modifier + "int " + fn + "(int a, int b) {\n");
+                for (int l = 0; l < body; l++) {
+                    if (l % 7 == 3) w.write(indent + "    // step " + l + "\n");
+                    else if (l % 11 == 5) w.write("\n");
+                    else w.write(indent + "    a = a + b * " + l + ";\n");
+                }
+                w.write(indent + "    return a;\n" + indent + "}\n\n");
+            }
+        }
+        if (classBased) w.write("}\n");
+    }
+
+    /** 删除生成的代码树 */
+    public static void delete(Path root) throws IOException {
+        if (root == null || !Files.exists(root)) return;
+        try (Stream<Path> walk = Files.walk(root)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package Game0_17;
+
+import Game0_11.SyntheticCorpus;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CodeStatistics.scanFolder 扫描合成代码树的基准测试
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodeScanBenchmark {
+
+    @Param({"200", "2000"})
+    public int files;
+
+    private Path root;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        root = SyntheticCorpus.generateMixed(20251213L, files, 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws IOException {
+        SyntheticCorpus.delete(root);
+    }
+
+    @Benchmark
+    public int scanFolder() {
+        CodeStatistics stats = new CodeStatistics();
+        stats.scanFolder(root.toString());
+        return stats.getTotalLines();
+    }
+}
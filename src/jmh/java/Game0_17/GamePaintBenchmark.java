@@ -0,0 +1,66 @@
+package Game0_17;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 渲染基准测试：把一整帧画到离屏 BufferedImage 上
+ * 不需要窗口，以 -Djava.awt.headless=true 运行
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GamePaintBenchmark {
+
+    @Param({"8", "200", "2000"})
+    public int packets;
+
+    private GameSimulation simulation;
+    private GameRenderer renderer;
+    private BufferedImage target;
+    private Graphics2D g;
+    private Image donaldImg;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        simulation = new GameSimulation(42L, 25);
+        renderer = new GameRenderer(simulation, LittleDuck.createDefaults());
+        renderer.setImages(load("/images/R-C.jpg"), load("/images/little_duck.png"),
+                load("/images/redpacket.png"), load("/images/redpacket-middle.png"), load("/images/redpacket-big.png"));
+        donaldImg = load("/images/duck.jpg");
+
+        simulation.requestStart(null);
+        simulation.tick();
+        simulation.getRedPacketStore().requestClear();
+        simulation.getRedPacketStore().requestStorm(packets);
+        simulation.tick();
+
+        target = new BufferedImage(GameSimulation.WIDTH, GameSimulation.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        g = target.createGraphics();
+    }
+
+    private Image load(String path) throws IOException {
+        URL url = GamePaintBenchmark.class.getResource(path);
+        return url != null ? ImageIO.read(url) : null;
+    }
+
+    @TearDown(Level.Trial)
+    public void dispose() {
+        g.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage paint() {
+        renderer.render(g, 0.5, donaldImg, 1234, 25, 60);
+        return target;
+    }
+}
@@ -0,0 +1,40 @@
+package Game0_17;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 逻辑帧基准测试：N 个红包同屏时 GameSimulation.tick 的耗时
+ * 使用红包风暴模式让红包数量保持不变，并把剩余时间固定住，让一局永不结束
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameTickBenchmark {
+
+    @Param({"8", "1000", "10000", "100000"})
+    public int packets;
+
+    private GameSimulation simulation;
+
+    @Setup(Level.Trial)
+    public void start() {
+        simulation = new GameSimulation(42L, 25);
+        simulation.requestStart(SkillType.AMOUNT_UP);
+        simulation.tick();
+        simulation.getRedPacketStore().requestClear();
+        simulation.getRedPacketStore().requestStorm(packets);
+        simulation.tick();
+    }
+
+    @Benchmark
+    public int tick() {
+        simulation.setRemainingMillis(GameSimulation.GAME_TIME);
+        simulation.tick();
+        return simulation.getSessionAmount();
+    }
+}
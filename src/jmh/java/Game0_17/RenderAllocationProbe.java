@@ -0,0 +1,70 @@
+package Game0_17;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * 渲染路径内存分配测量
+ * 无界面地把游戏画到离屏图片上，分别统计第一帧（建立缓存）和稳定状态下每帧分配的字节数。
+ * 运行：mvn -Pbenchmark package 之后 java -Djava.awt.headless=true Game0_17.RenderAllocationProbe [红包数量]
+ * 也可以用 JMH：mvn -Pbenchmark package exec:exec -Djmh.filter=GamePaint 并加上 -prof gc
+ */
+public class RenderAllocationProbe {
+
+    private static final int WARMUP_FRAMES = 2000;
+    private static final int MEASURE_FRAMES = 1000;
+
+    public static void main(String[] args) throws IOException {
+        if (!AllocationMeter.isSupported()) {
+            System.out.println("当前 JVM 不支持线程分配计数");
+            return;
+        }
+        int packets = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+
+        GameSimulation simulation = new GameSimulation(42L, GameSimulation.TICKS_PER_SECOND);
+        GameRenderer renderer = new GameRenderer(simulation, LittleDuck.createDefaults());
+        renderer.setImages(load("/images/R-C.jpg"), load("/images/little_duck.png"),
+                load("/images/redpacket.png"), load("/images/redpacket-middle.png"), load("/images/redpacket-big.png"));
+        Image donaldImg = load("/images/duck.jpg");
+
+        simulation.requestStart(SkillType.AMOUNT_UP);
+        simulation.tick();
+        simulation.getRedPacketStore().requestClear();
+        simulation.getRedPacketStore().requestStorm(packets);
+        simulation.tick();
+
+        BufferedImage target = new BufferedImage(GameSimulation.WIDTH, GameSimulation.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        renderer.render(g, 0.5, donaldImg, 1234, 25, 60);
+        long firstFrame = threads.getCurrentThreadAllocatedBytes() - before;
+
+        for (int i = 0; i < WARMUP_FRAMES; i++) renderer.render(g, 0.5, donaldImg, 1234, 25, 60);
+
+        before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEASURE_FRAMES; i++) renderer.render(g, 0.5, donaldImg, 1234, 25, 60);
+        long steady = threads.getCurrentThreadAllocatedBytes() - before;
+        g.dispose();
+
+        for (int i = 0; i < WARMUP_FRAMES; i++) renderer.renderRetained(0.5, donaldImg, 1234, 25, 60);
+        before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEASURE_FRAMES; i++) renderer.renderRetained(0.5, donaldImg, 1234, 25, 60);
+        long retained = threads.getCurrentThreadAllocatedBytes() - before;
+
+        System.out.printf("红包数量: %d%n", packets);
+        System.out.printf("第一帧分配: %d 字节%n", firstFrame);
+        System.out.printf("稳定状态每帧分配: %.1f 字节%n", (double) steady / MEASURE_FRAMES);
+        System.out.printf("增量绘制每帧分配: %.1f 字节%n", (double) retained / MEASURE_FRAMES);
+    }
+
+    private static Image load(String path) throws IOException {
+        URL url = RenderAllocationProbe.class.getResource(path);
+        return url != null ? ImageIO.read(url) : null;
+    }
+}
@@ -0,0 +1,91 @@
+package Game0_17;
+
+import java.util.Arrays;
+
+/**
+ * 均匀网格空间哈希 - 红包碰撞检测的粗筛阶段
+ * 每个逻辑帧重建一次：每个格子是一条用数组串起来的链表（O(n)，不分配对象），
+ * 查询时只检查目标矩形周围格子里的红包。
+ * 每个红包按左上角登记到一个格子，查询时向左上方多扩展一个最大红包尺寸，保证不漏检也不重复。
+ * 只作为 SpatialHashBenchmark 的对比对象：重建网格的开销要由多个捕手分摊，
+ * 游戏里只有唐老鸭一个捕手（小鸭子不接红包，鼠标也不点红包），实测直接遍历更快，所以没有放进 src/main。
+ */
+public class SpatialHash {
+
+    private final int cellSize;
+    private final int originX, originY;
+    private final int cols, rows;
+
+    private final int[] cellHead;    // 每个格子链表的第一个红包下标，-1 表示空
+    private int[] next = new int[256];  // 同一格子中下一个红包的下标
+    private int[] results = new int[64];
+    private int maxItemWidth, maxItemHeight;
+
+    /**
+     * @param originX 网格覆盖区域左上角 x
+     * @param originY 网格覆盖区域左上角 y（红包可能在屏幕上方生成，可以为负）
+     */
+    public SpatialHash(int cellSize, int originX, int originY, int width, int height) {
+        this.cellSize = cellSize;
+        this.originX = originX;
+        this.originY = originY;
+        this.cols = (width + cellSize - 1) / cellSize;
+        this.rows = (height + cellSize - 1) / cellSize;
+        this.cellHead = new int[cols * rows];
+    }
+
+    private int col(int x) {
+        int c = (x - originX) / cellSize;
+        return c < 0 ? 0 : (c >= cols ? cols - 1 : c);
+    }
+
+    private int row(int y) {
+        int r = Math.floorDiv(y - originY, cellSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+
+    /** 根据对象池的当前位置重建网格 */
+    public void rebuild(RedPacketPool pool) {
+        int n = pool.count();
+        if (next.length < n) next = new int[Math.max(n, next.length * 2)];
+        Arrays.fill(cellHead, -1);
+        int maxW = 0, maxH = 0;
+
+        for (int i = 0; i < n; i++) {
+            int c = row(pool.y(i)) * cols + col(pool.x(i));
+            next[i] = cellHead[c];
+            cellHead[c] = i;
+            if (pool.width(i) > maxW) maxW = pool.width(i);
+            if (pool.height(i) > maxH) maxH = pool.height(i);
+        }
+        maxItemWidth = maxW;
+        maxItemHeight = maxH;
+    }
+
+    /**
+     * 查询与矩形相交的红包，结果按下标升序存放在 {@link #results()} 中。
+     * 调用方从后往前遍历结果即可安全地用 swap-remove 删除。
+     * @return 命中的红包数量
+     */
+    public int queryRect(RedPacketPool pool, int x, int y, int w, int h) {
+        int c0 = col(x - maxItemWidth), c1 = col(x + w);
+        int r0 = row(y - maxItemHeight), r1 = row(y + h);
+        int found = 0;
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                for (int i = cellHead[r * cols + c]; i >= 0; i = next[i]) {
+                    if (x < pool.x(i) + pool.width(i) && x + w > pool.x(i) &&
+                            y < pool.y(i) + pool.height(i) && y + h > pool.y(i)) {
+                        if (found == results.length) results = Arrays.copyOf(results, found * 2);
+                        results[found++] = i;
+                    }
+                }
+            }
+        }
+        Arrays.sort(results, 0, found);
+        return found;
+    }
+
+    /** 最近一次查询的结果缓冲区，只有前 n 个元素有效 */
+    public int[] results() { return results; }
+}
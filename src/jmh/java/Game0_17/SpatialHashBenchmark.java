@@ -0,0 +1,60 @@
+package Game0_17;
+
+/**
+ * 空间哈希与暴力遍历的碰撞检测对比
+ * 分别在 1k / 10k / 100k 个红包下测量每个逻辑帧的平均耗时。
+ * 不经过 JMH，mvn -Pbenchmark package 之后直接运行 main。
+ * 网格每帧要重建一次，只有一个捕手时比直接遍历还慢；捕手越多收益越明显。
+ * 实测结果：1 个捕手 0.6~1.1x（1k 时更慢），5 个捕手 2.3~3.8x。游戏只有一个捕手，所以 GameSimulation 直接遍历。
+ */
+public class SpatialHashBenchmark {
+
+    private static final int WARMUP_TICKS = 300;
+    private static final int MEASURE_TICKS = 1000;
+
+    public static void main(String[] args) {
+        System.out.println("红包数量\t捕手数\t暴力遍历(us/帧)\t空间哈希(us/帧)\t加速比");
+        for (int n : new int[]{1_000, 10_000, 100_000}) {
+            for (int catchers : new int[]{1, 5}) {
+                double brute = measure(n, catchers, false);
+                double grid = measure(n, catchers, true);
+                System.out.printf("%d\t%d\t%.1f\t%.1f\t%.1fx%n", n, catchers, brute, grid, brute / grid);
+            }
+        }
+    }
+
+    /** 返回每帧平均耗时（微秒），只统计碰撞检测部分 */
+    private static double measure(int packets, int catchers, boolean useGrid) {
+        RedPacketStore store = new RedPacketStore();
+        store.requestStorm(packets);
+        store.drainCommands();
+        RedPacketPool pool = store.pool();
+        SpatialHash grid = new SpatialHash(64, 0, -GameFrame.HEIGHT, GameFrame.WIDTH, 2 * GameFrame.HEIGHT + 64);
+        DonaldDuck[] ducks = new DonaldDuck[catchers];
+        for (int c = 0; c < catchers; c++) {
+            ducks[c] = new DonaldDuck(40 + c * 120, GameFrame.HEIGHT - 150, 60, 60, 5);
+        }
+
+        long total = 0;
+        long hits = 0;
+        for (int t = 0; t < WARMUP_TICKS + MEASURE_TICKS; t++) {
+            store.advance(GameFrame.HEIGHT);
+            long start = System.nanoTime();
+            if (useGrid) {
+                grid.rebuild(pool);
+                for (DonaldDuck d : ducks) {
+                    hits += grid.queryRect(pool, d.getX(), d.getY(), d.getWidth(), d.getHeight());
+                }
+            } else {
+                for (DonaldDuck d : ducks) {
+                    for (int i = 0; i < pool.count(); i++) {
+                        if (d.collidesWith(pool.x(i), pool.y(i), pool.width(i), pool.height(i))) hits++;
+                    }
+                }
+            }
+            if (t >= WARMUP_TICKS) total += System.nanoTime() - start;
+        }
+        if (hits < 0) System.out.println(hits);  // 防止 JIT 消除循环
+        return total / 1000.0 / MEASURE_TICKS;
+    }
+}
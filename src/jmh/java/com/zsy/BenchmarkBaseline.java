@@ -0,0 +1,94 @@
+package com.zsy;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 把 JMH 的 JSON 结果和保存的基线对比，列出变慢超过阈值的基准测试
+ *
+ * 用法：java com.zsy.BenchmarkBaseline [结果文件] [基线文件] [--update]
+ * 基线文件不存在或带 --update 时，把本次结果保存为新的基线。
+ * 有回归时以退出码 1 结束，方便接入 CI。
+ */
+public class BenchmarkBaseline {
+
+    /** 超过基线 10% 视为回归 */
+    private static final double THRESHOLD = 0.10;
+
+    public static void main(String[] args) throws IOException {
+        Path result = Paths.get(args.length > 0 ? args[0] : "target/jmh-result.json");
+        Path baseline = Paths.get(args.length > 1 ? args[1] : "src/jmh/baseline.json");
+        boolean update = args.length > 2 && args[2].equals("--update");
+
+        if (!Files.exists(result)) {
+            System.err.println("找不到基准测试结果: " + result);
+            System.exit(2);
+        }
+        if (update || !Files.exists(baseline)) {
+            Files.copy(result, baseline, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("已保存基线: " + baseline);
+            return;
+        }
+
+        Map<String, JSONObject> current = load(result);
+        Map<String, JSONObject> base = load(baseline);
+        int regressions = 0;
+
+        System.out.printf("%-70s %14s %14s %8s%n", "benchmark", "baseline", "current", "change");
+        for (Map.Entry<String, JSONObject> e : current.entrySet()) {
+            JSONObject old = base.get(e.getKey());
+            double now = score(e.getValue());
+            String unit = e.getValue().getJSONObject("primaryMetric").getString("scoreUnit");
+            if (old == null) {
+                System.out.printf("%-70s %14s %11.3f %s %8s%n", e.getKey(), "-", now, unit, "new");
+                continue;
+            }
+            double before = score(old);
+            double change = (now - before) / before;
+            // 吞吐量模式数值越大越好，其余模式（耗时）越小越好
+            boolean throughput = "thrpt".equals(e.getValue().getString("mode"));
+            boolean regressed = throughput ? change < -THRESHOLD : change > THRESHOLD;
+            if (regressed) regressions++;
+            System.out.printf("%-70s %11.3f %s %11.3f %s %+7.1f%%%s%n",
+                    e.getKey(), before, unit, now, unit, change * 100, regressed ? "  <-- 回归" : "");
+        }
+
+        if (regressions > 0) {
+            System.out.println(regressions + " 个基准测试出现回归");
+            System.exit(1);
+        }
+        System.out.println("没有发现回归");
+    }
+
+    private static double score(JSONObject run) {
+        return run.getJSONObject("primaryMetric").getDouble("score");
+    }
+
+    /** 以 “基准名 + 参数” 作为键读取 JMH 结果 */
+    private static Map<String, JSONObject> load(Path file) throws IOException {
+        JSONArray runs = new JSONArray(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        Map<String, JSONObject> map = new LinkedHashMap<>();
+        for (int i = 0; i < runs.length(); i++) {
+            JSONObject run = runs.getJSONObject(i);
+            StringBuilder key = new StringBuilder(run.getString("benchmark"));
+            JSONObject params = run.optJSONObject("params");
+            if (params != null) {
+                for (String name : new TreeSet<>(params.keySet())) {
+                    key.append(' ').append(name).append('=').append(params.getString(name));
+                }
+            }
+            map.put(key.toString(), run);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,51 @@
+package Game0_17;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * 每帧内存分配统计
+ * 用 HotSpot 的线程分配计数器测量 begin/end 之间当前线程分配的字节数，
+ * 保存最近一秒的平均值。JVM 不支持时 {@link #isSupported()} 返回 false，结果恒为 0。
+ */
+public class AllocationMeter {
+
+    private static final com.sun.management.ThreadMXBean THREADS;
+    static {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean hotspot = null;
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            hotspot = (com.sun.management.ThreadMXBean) bean;
+            if (hotspot.isThreadAllocatedMemorySupported()) hotspot.setThreadAllocatedMemoryEnabled(true);
+            else hotspot = null;
+        }
+        THREADS = hotspot;
+    }
+
+    private long startBytes;
+    private long windowStart = System.nanoTime();
+    private long windowBytes;
+    private int windowFrames;
+    private volatile long bytesPerFrame;
+
+    public static boolean isSupported() { return THREADS != null; }
+
+    public void begin() {
+        if (THREADS != null) startBytes = THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    public void end() {
+        if (THREADS == null) return;
+        windowBytes += THREADS.getCurrentThreadAllocatedBytes() - startBytes;
+        windowFrames++;
+        long now = System.nanoTime();
+        if (now - windowStart >= 1_000_000_000L) {
+            bytesPerFrame = windowBytes / windowFrames;
+            windowBytes = 0;
+            windowFrames = 0;
+            windowStart = now;
+        }
+    }
+
+    /** 最近一秒每帧平均分配的字节数 */
+    public long getBytesPerFrame() { return bytesPerFrame; }
+}
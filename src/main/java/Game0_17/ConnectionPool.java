@@ -0,0 +1,403 @@
+package Game0_17;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * duck_game 共享的 JDBC 连接池
+ * 所有数据库访问都从这里借连接，用完 close() 就还回池里，不再每次都重新握手、认证、建会话。
+ * - 有上限：最多 {@link #DEFAULT_MAX_SIZE} 个物理连接，借满时最多等待 {@link #DEFAULT_MAX_WAIT_MILLIS} 毫秒
+ * - 校验：空闲超过 {@link #VALIDATE_AFTER_MILLIS} 的连接借出前先 isValid，坏连接直接丢弃重建；
+ *   连接或语句上出现连接层面的错误（SQLState 08xxx）时标记物理连接已坏，归还时丢弃
+ * - 空闲回收：后台线程定期关闭空闲超过 {@link #DEFAULT_IDLE_TIMEOUT_MILLIS} 的连接
+ * - 预编译语句缓存：每个物理连接按 SQL 缓存 PreparedStatement，调用方照常 close()，实际只清参数
+ * - 指标：活动/空闲连接数、借用次数、等待时间
+ */
+public final class ConnectionPool {
+
+    public static final int DEFAULT_MAX_SIZE = Integer.getInteger("duck.db.pool", 4);
+    public static final long DEFAULT_MAX_WAIT_MILLIS = 5_000;
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 60_000;
+    private static final long VALIDATE_AFTER_MILLIS = 5_000;
+    private static final int VALIDATE_TIMEOUT_SECONDS = 2;
+    private static final int STATEMENT_CACHE_SIZE = 32;
+
+    private static volatile ConnectionPool shared;
+
+    /** 使用 GameFrame 中数据库配置的全局连接池，第一次使用时创建，不会立即连接 */
+    public static ConnectionPool shared() {
+        ConnectionPool p = shared;
+        if (p == null) {
+            synchronized (ConnectionPool.class) {
+                p = shared;
+                if (p == null) {
+                    p = new ConnectionPool(GameFrame.DB_URL, GameFrame.DB_USER, GameFrame.DB_PASSWORD,
+                            DEFAULT_MAX_SIZE, DEFAULT_IDLE_TIMEOUT_MILLIS, DEFAULT_MAX_WAIT_MILLIS);
+                    shared = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    /** 一个物理连接及其语句缓存 */
+    private static final class Pooled {
+        final Connection physical;
+        /** 正在被借用者使用的缓存语句 */
+        final Set<PreparedStatement> inUse = Collections.newSetFromMap(new IdentityHashMap<>());
+        /** 按最近使用排序，超出容量时关闭最久未用且没在使用的语句 */
+        final Map<String, PreparedStatement> statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= STATEMENT_CACHE_SIZE || inUse.contains(eldest.getValue())) return false;
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+        long lastUsedMillis = System.currentTimeMillis();
+        /** 出现过连接层面的错误，归还时丢弃 */
+        volatile boolean broken;
+
+        Pooled(Connection physical) { this.physical = physical; }
+    }
+
+    private final String url, user, password;
+    private final int maxSize;
+    private final long idleTimeoutMillis, maxWaitMillis;
+
+    /** 空闲连接，最近归还的在队首，优先复用 */
+    private final ArrayDeque<Pooled> idle = new ArrayDeque<>();
+    private int total;      // 已建立或正在建立的物理连接数
+    private int active;     // 已借出的连接数
+    private boolean closed;
+
+    // 指标
+    private long borrows, waits, created, discarded, evicted, statementHits, statementMisses;
+    private long totalWaitNanos, maxWaitNanos;
+
+    private final ScheduledExecutorService evictor;
+
+    public ConnectionPool(String url, String user, String password, int maxSize, long idleTimeoutMillis, long maxWaitMillis) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = Math.max(1, maxSize);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxWaitMillis = maxWaitMillis;
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "duck-db-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1_000, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 借一个连接，用完必须 close()（推荐 try-with-resources），close 会把连接还回池里。
+     * 池满时等待，超过最长等待时间抛出 SQLException
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        boolean waited = false;
+        while (true) {
+            Pooled candidate = null;
+            boolean create = false;
+            synchronized (this) {
+                if (closed) throw new SQLException("连接池已关闭");
+                while (idle.isEmpty() && total >= maxSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        recordWait(start);
+                        throw new SQLException("等待数据库连接超时（" + maxWaitMillis + "ms，上限 " + maxSize + " 个）");
+                    }
+                    waited = true;
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("等待数据库连接被中断", e);
+                    }
+                    if (closed) throw new SQLException("连接池已关闭");
+                }
+                if (!idle.isEmpty()) {
+                    candidate = idle.pollFirst();
+                } else {
+                    total++;
+                    create = true;
+                }
+                active++;
+            }
+
+            // 建连接和校验都在锁外进行，不阻塞其他借用者
+            try {
+                if (create) {
+                    candidate = new Pooled(DriverManager.getConnection(url, user, password));
+                    synchronized (this) { created++; }
+                } else if (System.currentTimeMillis() - candidate.lastUsedMillis > VALIDATE_AFTER_MILLIS
+                        && !isUsable(candidate)) {
+                    discard(candidate);
+                    synchronized (this) { active--; discarded++; }
+                    continue;
+                }
+            } catch (SQLException e) {
+                synchronized (this) {
+                    total--;
+                    active--;
+                    notifyAll();
+                }
+                throw e;
+            }
+            synchronized (this) { borrows++; if (waited) waits++; }
+            recordWait(start);
+            return wrap(candidate);
+        }
+    }
+
+    private static boolean isUsable(Pooled p) {
+        try {
+            return !p.physical.isClosed() && p.physical.isValid(VALIDATE_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private synchronized void recordWait(long start) {
+        long nanos = System.nanoTime() - start;
+        totalWaitNanos += nanos;
+        if (nanos > maxWaitNanos) maxWaitNanos = nanos;
+    }
+
+    /** 借用者 close 时调用：恢复自动提交、清掉未关闭的语句，放回空闲队首 */
+    private void release(Pooled p, boolean broken) {
+        if (!broken) {
+            try {
+                if (!p.physical.getAutoCommit()) {
+                    p.physical.rollback();
+                    p.physical.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                broken = true;
+            }
+        }
+        p.inUse.clear();
+        if (broken) {
+            discard(p);
+            synchronized (this) {
+                active--;
+                discarded++;
+                notifyAll();
+            }
+            return;
+        }
+        p.lastUsedMillis = System.currentTimeMillis();
+        synchronized (this) {
+            active--;
+            if (closed) {
+                total--;
+                closeQuietly(p.physical);
+            } else {
+                idle.addFirst(p);
+            }
+            notifyAll();
+        }
+    }
+
+    /** 丢弃一个物理连接（不再计入总数） */
+    private void discard(Pooled p) {
+        synchronized (this) {
+            total--;
+            notifyAll();
+        }
+        for (PreparedStatement ps : p.statements.values()) closeQuietly(ps);
+        closeQuietly(p.physical);
+    }
+
+    /** 关闭空闲过久的连接，由后台线程定期调用 */
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        List<Pooled> expired = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Pooled> it = idle.descendingIterator();  // 从最久未用的开始
+            while (it.hasNext()) {
+                Pooled p = it.next();
+                if (now - p.lastUsedMillis < idleTimeoutMillis) break;
+                it.remove();
+                expired.add(p);
+                evicted++;
+            }
+        }
+        for (Pooled p : expired) discard(p);
+    }
+
+    /** 关闭所有空闲连接，已借出的连接归还时关闭 */
+    public void shutdown() {
+        List<Pooled> toClose;
+        synchronized (this) {
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+            notifyAll();
+        }
+        for (Pooled p : toClose) discard(p);
+        evictor.shutdownNow();
+    }
+
+    // ======== 连接和语句代理 ========
+
+    private Connection wrap(Pooled p) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean released;
+
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (name.equals("close")) {
+                    if (!released) {
+                        released = true;
+                        release(p, p.broken);
+                    }
+                    return null;
+                }
+                if (name.equals("isClosed")) return released || p.physical.isClosed();
+                if (released) throw new SQLException("连接已归还连接池");
+                if (name.equals("prepareStatement") && args.length == 1) {
+                    return prepare(p, (String) args[0], (Connection) proxy);
+                }
+                if (name.equals("unwrap") || name.equals("isWrapperFor")) {
+                    return invokeOn(p.physical, method, args);
+                }
+                if (name.equals("equals")) return proxy == args[0];
+                if (name.equals("hashCode")) return System.identityHashCode(proxy);
+                return invokeChecked(p, p.physical, method, args);
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, handler);
+    }
+
+    private PreparedStatement prepare(Pooled p, String sql, Connection owner) throws SQLException {
+        PreparedStatement cached = p.statements.get(sql);
+        if (cached != null && !cached.isClosed()) {
+            if (p.inUse.contains(cached)) {
+                // 同一条 SQL 正被使用（同一连接上打开了两次），新语句不进缓存，用完真正关闭
+                synchronized (this) { statementMisses++; }
+                return plainStatement(p, p.physical.prepareStatement(sql), owner);
+            }
+            synchronized (this) { statementHits++; }
+        } else {
+            cached = p.physical.prepareStatement(sql);
+            p.statements.put(sql, cached);
+            synchronized (this) { statementMisses++; }
+        }
+        p.inUse.add(cached);
+        return cachedStatement(p, cached, owner);
+    }
+
+    /** 缓存语句的代理：close 只清参数并标记为可复用 */
+    private static PreparedStatement cachedStatement(Pooled p, PreparedStatement ps, Connection owner) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean closed;
+
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (name.equals("close")) {
+                    if (!closed) {
+                        closed = true;
+                        ps.clearParameters();
+                        p.inUse.remove(ps);
+                    }
+                    return null;
+                }
+                if (name.equals("isClosed")) return closed;
+                if (name.equals("getConnection")) return owner;
+                if (name.equals("equals")) return proxy == args[0];
+                if (name.equals("hashCode")) return System.identityHashCode(proxy);
+                if (closed) throw new SQLException("语句已关闭");
+                return invokeChecked(p, ps, method, args);
+            }
+        };
+        return (PreparedStatement) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, handler);
+    }
+
+    /** 不进缓存的语句，只把 getConnection 指回代理连接 */
+    private static PreparedStatement plainStatement(Pooled p, PreparedStatement ps, Connection owner) {
+        return (PreparedStatement) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) ->
+                        method.getName().equals("getConnection") ? owner : invokeChecked(p, ps, method, args));
+    }
+
+    /** 在物理连接或语句上调用；连接层面的错误（SQLState 08xxx）说明物理连接已坏，标记后归还时丢弃 */
+    private static Object invokeChecked(Pooled p, Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException && isConnectionError((SQLException) cause)) p.broken = true;
+            throw cause;
+        }
+    }
+
+    private static Object invokeOn(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static boolean isConnectionError(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && state.startsWith("08");
+    }
+
+    private static void closeQuietly(AutoCloseable c) {
+        try {
+            if (c != null) c.close();
+        } catch (Exception ignored) {
+        }
+    }
+
+    // ======== 指标 ========
+
+    public synchronized int getActiveCount() { return active; }
+    public synchronized int getIdleCount() { return idle.size(); }
+    public synchronized int getTotalCount() { return total; }
+    public int getMaxSize() { return maxSize; }
+    public synchronized long getBorrowCount() { return borrows; }
+    /** 因池满而等待过的借用次数 */
+    public synchronized long getWaitCount() { return waits; }
+    /** 借一个连接的平均耗时（毫秒），包括等待和新建连接 */
+    public synchronized double getAverageWaitMillis() { return borrows == 0 ? 0 : totalWaitNanos / 1e6 / borrows; }
+    public synchronized double getMaxWaitMillis() { return maxWaitNanos / 1e6; }
+    public synchronized long getCreatedCount() { return created; }
+    public synchronized long getDiscardedCount() { return discarded; }
+    public synchronized long getEvictedCount() { return evicted; }
+    public synchronized long getStatementCacheHits() { return statementHits; }
+    public synchronized long getStatementCacheMisses() { return statementMisses; }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("连接池 活动 %d 空闲 %d / 上限 %d，借用 %d 次（等待 %d 次，平均 %.1fms，最长 %.1fms），语句缓存命中 %d/%d",
+                active, idle.size(), maxSize, borrows, waits, getAverageWaitMillis(), getMaxWaitMillis(),
+                statementHits, statementHits + statementMisses);
+    }
+}
@@ -0,0 +1,18 @@
+package Game0_17;
+
+enum DebuffType {
+    REVERSE_WORLD("颠倒世界", "左右颠倒", 0x32800080),
+    NO_FLY("飞行无力", "无法飞行", 0x32646464),
+    EIGHT_GATES("八门齐开", "5秒翻倍", 0x32FFD700);
+
+    private String name, shortDesc;
+    private int overlayArgb;
+
+    DebuffType(String name, String shortDesc, int overlayArgb) {
+        this.name = name; this.shortDesc = shortDesc; this.overlayArgb = overlayArgb;
+    }
+
+    public String getDescription() { return name + " - " + shortDesc; }
+    /** 遮罩颜色（ARGB），规则层不依赖 AWT，由界面层转换成 Color */
+    public int getOverlayArgb() { return overlayArgb; }
+}
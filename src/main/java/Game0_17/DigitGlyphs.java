@@ -0,0 +1,60 @@
+package Game0_17;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * 数字字形贴图
+ * 0~9 和负号各预渲染成一张小图，画数字时逐位贴图，不需要 String.valueOf，也不分配对象。
+ * 用于红包上的金额这类每帧大量绘制的数字。
+ */
+public class DigitGlyphs {
+
+    private static final int MINUS = 10;
+
+    private final BufferedImage[] glyphs = new BufferedImage[11];
+    private final int[] advance = new int[11];
+    private final int ascent;
+
+    public DigitGlyphs(Font font, Color color) {
+        BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D sg = scratch.createGraphics();
+        FontMetrics fm = sg.getFontMetrics(font);
+        sg.dispose();
+        ascent = fm.getAscent();
+        int h = Math.max(1, fm.getAscent() + fm.getDescent());
+        for (int i = 0; i < glyphs.length; i++) {
+            String s = i == MINUS ? "-" : String.valueOf((char) ('0' + i));
+            advance[i] = fm.stringWidth(s);
+            glyphs[i] = new BufferedImage(Math.max(1, advance[i]), h, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = glyphs[i].createGraphics();
+            g.setFont(font);
+            g.setColor(color);
+            g.drawString(s, 0, ascent);
+            g.dispose();
+        }
+    }
+
+    /**
+     * 从 x 开始向右画一个整数，y 为基线位置（与 drawString 相同）
+     * @return 画出的总宽度
+     */
+    public int draw(Graphics g, int value, int x, int baselineY) {
+        int top = baselineY - ascent;
+        int cx = x;
+        long v = value;
+        if (v < 0) {
+            g.drawImage(glyphs[MINUS], cx, top, null);
+            cx += advance[MINUS];
+            v = -v;
+        }
+        long div = 1;
+        while (div * 10 <= v) div *= 10;
+        for (; div > 0; div /= 10) {
+            int d = (int) (v / div % 10);
+            g.drawImage(glyphs[d], cx, top, null);
+            cx += advance[d];
+        }
+        return cx - x;
+    }
+}
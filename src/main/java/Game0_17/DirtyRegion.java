@@ -0,0 +1,96 @@
+package Game0_17;
+
+import java.util.Arrays;
+
+/**
+ * 脏矩形收集器
+ * 一帧内登记所有需要重画的矩形（实体的旧位置和新位置、变化了的 HUD 文字），
+ * 合并重叠的矩形后交给渲染器逐个裁剪重画。矩形太多或覆盖面积太大时退化为整屏重画。
+ * 用 int 数组存储，不分配对象。
+ */
+public class DirtyRegion {
+
+    /** 合并后超过这个数量就整屏重画 */
+    private static final int MAX_RECTS = 48;
+    /** 未合并前超过这个数量直接整屏重画，避免 O(n^2) 合并 */
+    private static final int MAX_RAW_RECTS = 512;
+    /** 脏区面积超过屏幕的这个比例就整屏重画 */
+    private static final double MAX_AREA_RATIO = 0.4;
+    /** 相距不超过这个距离的矩形合并成一个，减少裁剪次数 */
+    private static final int MERGE_GAP = 8;
+
+    private final int width, height;
+    private int[] rects = new int[4 * 64];  // x0, y0, x1, y1
+    private int count;
+    private boolean full;
+
+    public DirtyRegion(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    public void reset() {
+        count = 0;
+        full = false;
+    }
+
+    public void markFull() {
+        full = true;
+    }
+
+    public void add(int x, int y, int w, int h) {
+        if (full || w <= 0 || h <= 0) return;
+        int x0 = Math.max(0, x), y0 = Math.max(0, y);
+        int x1 = Math.min(width, x + w), y1 = Math.min(height, y + h);
+        if (x0 >= x1 || y0 >= y1) return;
+        if (count == MAX_RAW_RECTS) { full = true; return; }
+        if (rects.length < (count + 1) * 4) rects = Arrays.copyOf(rects, rects.length * 2);
+        int k = count * 4;
+        rects[k] = x0; rects[k + 1] = y0; rects[k + 2] = x1; rects[k + 3] = y1;
+        count++;
+    }
+
+    /** 合并相交或相邻的矩形，必要时转为整屏重画 */
+    public void merge() {
+        if (full) return;
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            for (int i = 0; i < count; i++) {
+                int a = i * 4;
+                for (int j = i + 1; j < count; j++) {
+                    int b = j * 4;
+                    if (rects[a] <= rects[b + 2] + MERGE_GAP && rects[b] <= rects[a + 2] + MERGE_GAP &&
+                            rects[a + 1] <= rects[b + 3] + MERGE_GAP && rects[b + 1] <= rects[a + 3] + MERGE_GAP) {
+                        rects[a] = Math.min(rects[a], rects[b]);
+                        rects[a + 1] = Math.min(rects[a + 1], rects[b + 1]);
+                        rects[a + 2] = Math.max(rects[a + 2], rects[b + 2]);
+                        rects[a + 3] = Math.max(rects[a + 3], rects[b + 3]);
+                        // 用最后一个矩形填补空位
+                        int last = (count - 1) * 4;
+                        System.arraycopy(rects, last, rects, b, 4);
+                        count--;
+                        j--;
+                        merged = true;
+                    }
+                }
+            }
+        }
+        if (count > MAX_RECTS || area() > width * height * MAX_AREA_RATIO) full = true;
+    }
+
+    public boolean isFull() { return full; }
+    public int count() { return full ? 0 : count; }
+    public int x(int i) { return rects[i * 4]; }
+    public int y(int i) { return rects[i * 4 + 1]; }
+    public int width(int i) { return rects[i * 4 + 2] - rects[i * 4]; }
+    public int height(int i) { return rects[i * 4 + 3] - rects[i * 4 + 1]; }
+
+    /** 需要重画的像素数 */
+    public long area() {
+        if (full) return (long) width * height;
+        long sum = 0;
+        for (int i = 0; i < count; i++) sum += (long) width(i) * height(i);
+        return sum;
+    }
+}
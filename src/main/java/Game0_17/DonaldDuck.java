@@ -0,0 +1,60 @@
+package Game0_17;
+
+import java.awt.event.KeyEvent;
+
+class DonaldDuck {
+    private int x, y, width, height, speed, gravity = 2;
+    private int prevX, prevY;
+    private boolean left, right, up, down;
+
+    public DonaldDuck(int x, int y, int w, int h, int speed) {
+        this.x = x; this.y = y; this.width = w; this.height = h; this.speed = speed;
+        this.prevX = x; this.prevY = y;
+    }
+
+    /** 在每个逻辑帧开始时记录位置，用于渲染插值 */
+    public void savePreviousPosition() { prevX = x; prevY = y; }
+    public int getRenderX(double alpha) { return (int) Math.round(prevX + (x - prevX) * alpha); }
+    public int getRenderY(double alpha) { return (int) Math.round(prevY + (y - prevY) * alpha); }
+
+    public void handleKeyPress(int key) {
+        switch (key) {
+            case KeyEvent.VK_LEFT: left = true; break;
+            case KeyEvent.VK_RIGHT: right = true; break;
+            case KeyEvent.VK_UP: up = true; break;
+            case KeyEvent.VK_DOWN: down = true; break;
+        }
+    }
+
+    public void handleKeyRelease(int key) {
+        switch (key) {
+            case KeyEvent.VK_LEFT: left = false; break;
+            case KeyEvent.VK_RIGHT: right = false; break;
+            case KeyEvent.VK_UP: up = false; break;
+            case KeyEvent.VK_DOWN: down = false; break;
+        }
+    }
+
+    public void applyGravity(int maxH) { if (y < maxH - height) y += gravity; }
+
+    public void updatePosition(int maxW, int maxH) {
+        if (left && x > 0) x -= speed;
+        if (right && x < maxW - width) x += speed;
+        if (up && y > 60) y -= speed;
+        if (down && y < maxH - height) y += speed;
+    }
+
+    public boolean collidesWith(int rx, int ry, int rw, int rh) {
+        return x < rx + rw && x + width > rx &&
+                y < ry + rh && y + height > ry;
+    }
+
+    public int getX() { return x; }
+    public int getY() { return y; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getSpeed() { return speed; }
+    public void setSpeed(int s) { speed = s; }
+    public void setWidth(int w) { width = w; }
+    public void setHeight(int h) { height = h; }
+}
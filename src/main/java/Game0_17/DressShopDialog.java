@@ -1,11 +1,7 @@
 package Game0_17;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
-import java.io.IOException;
-import java.net.URL;
-import java.sql.*;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -37,70 +33,49 @@ public class DressShopDialog extends JDialog {
     
     /**
      * 加载资源
+     * 图片都来自 ImageRegistry：启动时已经在后台解码，预览图也已缩放好，再次打开商店不会重复解码
      */
     private void loadResources() {
-        try {
-            // 加载背景图片
-            URL bgUrl = getClass().getResource("/images/shopbackground.png");
-            if (bgUrl != null) {
-                shopBackground = ImageIO.read(bgUrl);
-            }
-            
-            // 加载默认唐老鸭图片
-            URL duckUrl = getClass().getResource("/images/duck.jpg");
-            if (duckUrl != null) {
-                defaultDuckImage = ImageIO.read(duckUrl);
-            }
-            
-            // 加载套装预览图片
-            loadSuitImage("运动风格", "/images/yd_style.jpeg");
-            loadSuitImage("正式风格", "/images/zs_style.jpeg");
-            loadSuitImage("混搭风格", "/images/hd_style.jpeg");
-            
-        } catch (IOException e) {
-            System.err.println("商店资源加载失败: " + e.getMessage());
-        }
+        shopBackground = ImageRegistry.get(ImageRegistry.SHOP_BACKGROUND);
+        defaultDuckImage = ImageRegistry.getScaled(ImageRegistry.DONALD,
+                ImageRegistry.SHOP_PREVIEW_SIZE, ImageRegistry.SHOP_PREVIEW_SIZE);
+
+        // 套装预览图片
+        loadSuitImage("运动风格", ImageRegistry.SPORT_STYLE);
+        loadSuitImage("正式风格", ImageRegistry.FORMAL_STYLE);
+        loadSuitImage("混搭风格", ImageRegistry.MIXED_STYLE);
     }
     
     /**
-     * 加载单个套装图片
+     * 加载单个套装图片（缩放到预览大小）
      */
     private void loadSuitImage(String suitName, String imagePath) {
-        try {
-            URL url = getClass().getResource(imagePath);
-            if (url != null) {
-                Image img = ImageIO.read(url);
-                // 缩放图片到合适大小
-                Image scaledImg = img.getScaledInstance(140, 140, Image.SCALE_SMOOTH);
-                suitImages.put(suitName, scaledImg);
-            }
-        } catch (IOException e) {
-            System.err.println("套装图片加载失败 [" + suitName + "]: " + e.getMessage());
+        Image scaledImg = ImageRegistry.getScaled(imagePath, ImageRegistry.SHOP_PREVIEW_SIZE, ImageRegistry.SHOP_PREVIEW_SIZE);
+        if (scaledImg != null) {
+            suitImages.put(suitName, scaledImg);
+        } else {
+            System.err.println("套装图片加载失败 [" + suitName + "]: " + imagePath);
         }
     }
     
     /**
-     * 从数据库加载套装购买状态
+     * 读取套装购买状态
      */
     private void loadPurchaseStatus() {
-        // 初始化所有套装为未购买
+        // 拥有情况来自进程级缓存，打开商店不再查询数据库
+        SuitOwnershipCache cache = SuitOwnershipCache.shared();
         for (String suit : SUIT_NAMES) {
-            purchasedSuits.put(suit, false);
+            purchasedSuits.put(suit, cache.isOwned(suit));
         }
-        
-        // 从数据库读取购买记录
-        try (Connection conn = DriverManager.getConnection(
-                GameFrame.DB_URL, GameFrame.DB_USER, GameFrame.DB_PASSWORD);
-             PreparedStatement ps = conn.prepareStatement(
-                "SELECT suit_name FROM suit_purchases WHERE is_purchased = 1")) {
-            
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                String suitName = rs.getString("suit_name");
-                purchasedSuits.put(suitName, true);
-            }
-        } catch (SQLException e) {
-            System.err.println("加载购买记录失败: " + e.getMessage());
+        if (!cache.isLoaded()) {
+            // 购买记录读出来之后再刷新按钮和图标
+            cache.whenLoaded(() -> {
+                for (String suit : SUIT_NAMES) {
+                    purchasedSuits.put(suit, cache.isOwned(suit));
+                    if (suitButtons.containsKey(suit)) showOwnership(suit);
+                }
+                repaint();
+            });
         }
     }
     
@@ -119,7 +94,8 @@ public class DressShopDialog extends JDialog {
                 super.paintComponent(g);
                 // 绘制背景
                 if (shopBackground != null) {
-                    g.drawImage(shopBackground, 0, 0, getWidth(), getHeight(), this);
+                    // 按面板大小缓存一份缩放好的背景，重绘时不再每次缩放整张图
+                    g.drawImage(ImageRegistry.getScaled(ImageRegistry.SHOP_BACKGROUND, getWidth(), getHeight()), 0, 0, this);
                 } else {
                     // 如果没有背景图，使用渐变色
                     Graphics2D g2d = (Graphics2D) g;
@@ -163,10 +139,8 @@ public class DressShopDialog extends JDialog {
         
         for (int i = 0; i < SUIT_NAMES.length; i++) {
             String suitName = SUIT_NAMES[i];
-            boolean isPurchased = purchasedSuits.get(suitName);
-            
             // 创建套装面板
-            JPanel suitPanel = createSuitPanel(suitName, isPurchased, i);
+            JPanel suitPanel = createSuitPanel(suitName, i);
             suitPanel.setBounds(startX + i * (buttonWidth + spacing), startY, buttonWidth, buttonHeight);
             mainPanel.add(suitPanel);
         }
@@ -185,7 +159,7 @@ public class DressShopDialog extends JDialog {
     /**
      * 创建套装面板
      */
-    private JPanel createSuitPanel(String suitName, boolean isPurchased, int index) {
+    private JPanel createSuitPanel(String suitName, int index) {
         JPanel panel = new JPanel();
         panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
         panel.setOpaque(false);
@@ -198,6 +172,7 @@ public class DressShopDialog extends JDialog {
                 Graphics2D g2d = (Graphics2D) g;
                 g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
                 
+                boolean isPurchased = purchasedSuits.get(suitName);
                 // 绘制背景框
                 if (isPurchased) {
                     g2d.setColor(new Color(100, 200, 100, 50));
@@ -268,25 +243,37 @@ public class DressShopDialog extends JDialog {
         
         // 购买/使用按钮
         JButton actionButton = new JButton();
-        if (isPurchased) {
-            actionButton.setText("✓ 已拥有");
-            actionButton.setBackground(new Color(100, 200, 100));
-            actionButton.setEnabled(false);
-        } else {
-            actionButton.setText("💰 购买 (" + SUIT_COST + "元)");
-            actionButton.setBackground(new Color(255, 200, 100));
-            actionButton.addActionListener(e -> purchaseSuit(suitName));
-        }
+        actionButton.addActionListener(e -> purchaseSuit(suitName));
         actionButton.setFont(new Font("微软雅黑", Font.BOLD, 14));
         actionButton.setAlignmentX(Component.CENTER_ALIGNMENT);
         panel.add(Box.createVerticalStrut(10));
         panel.add(actionButton);
         
         suitButtons.put(suitName, actionButton);
+        showOwnership(suitName);
         
         return panel;
     }
     
+    /**
+     * 按拥有情况设置购买按钮；购买记录还没读出来时先不让买，免得重复购买
+     */
+    private void showOwnership(String suitName) {
+        JButton button = suitButtons.get(suitName);
+        if (purchasedSuits.get(suitName)) {
+            button.setText("✓ 已拥有");
+            button.setBackground(new Color(100, 200, 100));
+            button.setEnabled(false);
+        } else if (!SuitOwnershipCache.shared().isLoaded()) {
+            button.setText("读取中...");
+            button.setEnabled(false);
+        } else {
+            button.setText("💰 购买 (" + SUIT_COST + "元)");
+            button.setBackground(new Color(255, 200, 100));
+            button.setEnabled(true);
+        }
+    }
+    
     /**
      * 获取套装描述
      */
@@ -321,16 +308,15 @@ public class DressShopDialog extends JDialog {
             "确认购买", JOptionPane.YES_NO_OPTION);
         
         if (choice == JOptionPane.YES_OPTION) {
-            // 扣除金额
-            if (gameFrame.deductAmount(SUIT_COST)) {
-                // 更新数据库
-                if (updatePurchaseStatus(suitName)) {
+            // 扣钱和购买记录在同一个事务里写入，余额不够时都不写；等结果时按钮不能再点
+            JButton button = suitButtons.get(suitName);
+            button.setEnabled(false);
+            gameFrame.purchaseSuit(suitName, SUIT_COST, result -> {
+                if (result == GameFrame.SpendResult.SPENT) {
                     // 更新UI
                     purchasedSuits.put(suitName, true);
-                    JButton button = suitButtons.get(suitName);
                     button.setText("✓ 已拥有");
                     button.setBackground(new Color(100, 200, 100));
-                    button.setEnabled(false);
                     
                     // 刷新金额显示
                     Component[] components = getContentPane().getComponents();
@@ -349,49 +335,19 @@ public class DressShopDialog extends JDialog {
                         "购买成功！\n你现在拥有了【" + suitName + "】！",
                         "购买成功", JOptionPane.INFORMATION_MESSAGE);
                 } else {
-                    // 如果数据库更新失败，退还金额
-                    gameFrame.deductAmount(-SUIT_COST);
-                    JOptionPane.showMessageDialog(this,
-                        "购买失败，请稍后再试！",
-                        "错误", JOptionPane.ERROR_MESSAGE);
+                    button.setEnabled(true);
+                    if (result == GameFrame.SpendResult.NOT_ENOUGH) {
+                        // 可能在别的窗口里花掉了
+                        JOptionPane.showMessageDialog(this,
+                            "金额不足！\n需要: " + SUIT_COST + "元",
+                            "购买失败", JOptionPane.WARNING_MESSAGE);
+                    } else {
+                        JOptionPane.showMessageDialog(this,
+                            "数据库不可用，请稍后再试！",
+                            "错误", JOptionPane.ERROR_MESSAGE);
+                    }
                 }
-            }
-        }
-    }
-    
-    /**
-     * 更新数据库中的购买状态
-     */
-    private boolean updatePurchaseStatus(String suitName) {
-        try (Connection conn = DriverManager.getConnection(
-                GameFrame.DB_URL, GameFrame.DB_USER, GameFrame.DB_PASSWORD)) {
-            
-            // 检查记录是否存在
-            PreparedStatement checkPs = conn.prepareStatement(
-                "SELECT COUNT(*) FROM suit_purchases WHERE suit_name = ?");
-            checkPs.setString(1, suitName);
-            ResultSet rs = checkPs.executeQuery();
-            rs.next();
-            int count = rs.getInt(1);
-            
-            if (count == 0) {
-                // 插入新记录
-                PreparedStatement insertPs = conn.prepareStatement(
-                    "INSERT INTO suit_purchases (suit_name, is_purchased, purchase_time) VALUES (?, 1, NOW())");
-                insertPs.setString(1, suitName);
-                insertPs.executeUpdate();
-            } else {
-                // 更新现有记录
-                PreparedStatement updatePs = conn.prepareStatement(
-                    "UPDATE suit_purchases SET is_purchased = 1, purchase_time = NOW() WHERE suit_name = ?");
-                updatePs.setString(1, suitName);
-                updatePs.executeUpdate();
-            }
-            
-            return true;
-        } catch (SQLException e) {
-            System.err.println("更新购买状态失败: " + e.getMessage());
-            return false;
+            });
         }
     }
     
@@ -399,19 +355,6 @@ public class DressShopDialog extends JDialog {
      * 检查套装是否已购买
      */
     public static boolean isSuitPurchased(String suitName) {
-        try (Connection conn = DriverManager.getConnection(
-                GameFrame.DB_URL, GameFrame.DB_USER, GameFrame.DB_PASSWORD);
-             PreparedStatement ps = conn.prepareStatement(
-                "SELECT is_purchased FROM suit_purchases WHERE suit_name = ?")) {
-            
-            ps.setString(1, suitName);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                return rs.getBoolean("is_purchased");
-            }
-        } catch (SQLException e) {
-            System.err.println("检查购买状态失败: " + e.getMessage());
-        }
-        return false;
+        return SuitOwnershipCache.shared().isOwned(suitName);
     }
 }
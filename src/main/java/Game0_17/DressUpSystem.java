@@ -2,9 +2,6 @@ package Game0_17;
 
 import javax.swing.*;
 import java.awt.*;
-import javax.imageio.ImageIO;
-import java.net.URL;
-import java.io.IOException;
 
 /**
  * 装扮系统 - 管理唐老鸭的换装功能
@@ -29,27 +26,16 @@ public class DressUpSystem implements GameFrame.DressUpSystem {
      */
     private void loadDressImages() {
         try {
-            donaldImg = loadImage("/images/duck.jpg");
-            sportStyleImg = loadImage("/images/yd_style.jpeg");
-            formalStyleImg = loadImage("/images/zs_style.jpeg");
-            mixedStyleImg = loadImage("/images/hd_style.jpeg");
+            // 与游戏共用 ImageRegistry 中已解码的图片，duck.jpg 不再重复解码
+            donaldImg = ImageRegistry.get(ImageRegistry.DONALD);
+            sportStyleImg = ImageRegistry.get(ImageRegistry.SPORT_STYLE);
+            formalStyleImg = ImageRegistry.get(ImageRegistry.FORMAL_STYLE);
+            mixedStyleImg = ImageRegistry.get(ImageRegistry.MIXED_STYLE);
         } catch (Exception e) {
             System.err.println("换装图片加载失败: " + e.getMessage());
         }
     }
     
-    private Image loadImage(String imagePath) {
-        URL url = getClass().getResource(imagePath);
-        if (url != null) {
-            try {
-                return ImageIO.read(url);
-            } catch (IOException e) {
-                System.err.println("无法加载图片: " + imagePath);
-            }
-        }
-        return null;
-    }
-    
     @Override
     public String getCurrentStyle() {
         return currentStyle;
@@ -96,6 +82,19 @@ public class DressUpSystem implements GameFrame.DressUpSystem {
         sportBtn.setPreferredSize(new Dimension(100, 40));
         mixedBtn.setPreferredSize(new Dimension(100, 40));
         
+        // 购买记录还没读出来时先不能选套装，读完再打开，检查本身只查内存
+        SuitOwnershipCache cache = SuitOwnershipCache.shared();
+        if (!cache.isLoaded()) {
+            formalBtn.setEnabled(false);
+            sportBtn.setEnabled(false);
+            mixedBtn.setEnabled(false);
+            cache.whenLoaded(() -> {
+                formalBtn.setEnabled(true);
+                sportBtn.setEnabled(true);
+                mixedBtn.setEnabled(true);
+            });
+        }
+        
         // 默认装扮
         defaultBtn.addActionListener(e -> {
             currentStyle = "默认装扮";
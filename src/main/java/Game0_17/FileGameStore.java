@@ -0,0 +1,570 @@
+package Game0_17;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * 本地文件存储 - 不需要 MySQL，数据全部在内存里，每次写入追加到日志文件
+ * 目录里有三个文件：
+ * - snapshot.dat：某一时刻的完整数据，末尾带 CRC32，只通过“写临时文件 + 原子改名”替换
+ * - journal.log：快照之后的每一批变更，一条记录 = 长度 + CRC32 + 内容（序号、类型、变更），写完立即 force 到磁盘
+ * - store.lock：同一个目录只允许一个进程打开
+ * 启动时读快照再重放日志，进程崩溃后日志末尾写了一半的记录校验不过，会被截掉，之前提交的数据都在。
+ * 每条日志记录带递增序号，快照记下它包含的最后一个序号，所以在“快照已替换、日志还没清空”时崩溃也不会重复计入。
+ * 日志超过 {@link #COMPACT_BYTES} 或关闭时把内存写成新快照并清空日志。
+ */
+public class FileGameStore implements GameStore {
+
+    /** 快照文件头："DUKS" */
+    static final int SNAPSHOT_MAGIC = 0x44554B53;
+    static final int VERSION = 1;
+    private static final long COMPACT_BYTES = 4L << 20;
+
+    // 日志记录类型
+    private static final byte CHANGES = 1;
+    private static final byte RESET_SKILLS = 2;
+
+    private final Path dir, snapshotFile, journalFile, lockFile;
+
+    // 内存中的数据，都由 this 保护
+    private int balance;
+    /** 每只小鸭子的 {点名, 使用, 未使用}，按名字排序 */
+    private final Map<String, int[]> skillStats = new TreeMap<>();
+    private final Map<String, String> skillNames = new TreeMap<>();
+    /** 已购买的套装和购买时间 */
+    private final Map<String, Long> suits = new LinkedHashMap<>();
+    private final CallLog calls = new CallLog();
+    /** 已应用的最后一条日志记录的序号 */
+    private long seq;
+
+    private FileChannel journal, lockChannel;
+    private FileLock lock;
+    private boolean opened;
+
+    // 指标
+    private long appends, compactions, openMillis;
+
+    public FileGameStore(Path dir) {
+        this.dir = dir;
+        this.snapshotFile = dir.resolve("snapshot.dat");
+        this.journalFile = dir.resolve("journal.log");
+        this.lockFile = dir.resolve("store.lock");
+    }
+
+    @Override
+    public synchronized void open() throws SQLException {
+        if (opened) return;
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            Files.createDirectories(dir);
+            lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            try {
+                lock = lockChannel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock == null) {
+                throw new SQLException("数据目录正被另一个游戏进程使用: " + dir.toAbsolutePath());
+            }
+            if (Files.exists(snapshotFile)) readSnapshot();
+            for (int i = 0; i < DUCK_NAMES.length; i++) {
+                skillStats.putIfAbsent(DUCK_NAMES[i], new int[3]);
+                skillNames.putIfAbsent(DUCK_NAMES[i], SKILL_NAMES[i]);
+            }
+            journal = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            replayJournal();
+            ok = true;
+        } catch (IOException e) {
+            throw new SQLException("无法打开数据目录 " + dir.toAbsolutePath() + ": " + e.getMessage(), e);
+        } finally {
+            if (!ok) {
+                // 打开失败时放开目录锁，丢掉读了一半的数据，之后可以重试
+                closeQuietly(journal);
+                closeQuietly(lockChannel);
+                journal = null;
+                clearState();
+            }
+        }
+        openMillis = (System.nanoTime() - start) / 1_000_000;
+        opened = true;
+    }
+
+    @Override
+    public synchronized int loadBalance() throws SQLException {
+        ensureOpen();
+        return balance;
+    }
+
+    @Override
+    public synchronized List<SkillStats> loadSkillStats() throws SQLException {
+        ensureOpen();
+        List<SkillStats> result = new ArrayList<>();
+        for (Map.Entry<String, int[]> e : skillStats.entrySet()) {
+            int[] s = e.getValue();
+            result.add(new SkillStats(e.getKey(), skillNames.get(e.getKey()), s[0], s[1], s[2]));
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void resetSkillStats() throws SQLException {
+        ensureOpen();
+        append(RESET_SKILLS, out -> {});
+        applyReset();
+    }
+
+    @Override
+    public synchronized Set<String> loadPurchasedSuits() throws SQLException {
+        ensureOpen();
+        return new LinkedHashSet<>(suits.keySet());
+    }
+
+    @Override
+    public synchronized boolean isSuitPurchased(String suitName) throws SQLException {
+        ensureOpen();
+        return suits.containsKey(suitName);
+    }
+
+    @Override
+    public synchronized List<CallRecord> loadCallHistory(String duckName, long sinceMillis, CallRecord after, int limit)
+            throws SQLException {
+        ensureOpen();
+        List<CallRecord> result = new ArrayList<>();
+        int duck = duckName == null ? -1 : calls.nameIndex.getOrDefault(duckName, -2);
+        if (duck == -2) return result;
+        // 与 MySQL 的实现相同：从 after 之前的位置往回扫，直到出了时间窗口或凑够一页
+        int end = after == null ? calls.size : calls.lowerBound(after.callTimeMillis, after.id);
+        for (int i = end - 1; i >= 0 && calls.times[i] >= sinceMillis && result.size() < limit; i--) {
+            if (duck < 0 || calls.ducks[i] == duck) result.add(calls.get(i));
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized List<CallSummary> summarizeCalls(long sinceMillis) throws SQLException {
+        ensureOpen();
+        int n = calls.names.size();
+        int[] count = new int[n], used = new int[n];
+        long[] amount = new long[n];
+        for (int i = calls.lowerBound(sinceMillis, Long.MIN_VALUE); i < calls.size; i++) {
+            int d = calls.ducks[i];
+            count[d]++;
+            if (calls.used[i]) used[d]++;
+            amount[d] += calls.amounts[i];
+        }
+        Map<String, CallSummary> sorted = new TreeMap<>();
+        for (int d = 0; d < n; d++) {
+            if (count[d] > 0) sorted.put(calls.names.get(d), new CallSummary(calls.names.get(d), count[d], used[d], amount[d]));
+        }
+        return new ArrayList<>(sorted.values());
+    }
+
+    @Override
+    public synchronized void write(Changes changes) throws SQLException {
+        ensureOpen();
+        if (changes.isEmpty()) return;
+        appendChanges(changes);
+    }
+
+    @Override
+    public synchronized boolean spend(int cost, Changes purchase) throws SQLException {
+        ensureOpen();
+        if (balance < cost) return false;
+        // 扣钱和买到的东西合成一条日志记录，要么都在要么都不在
+        appendChanges(new Changes(purchase.balanceDelta - cost, purchase.skillDeltas, purchase.suits, purchase.calls));
+        return true;
+    }
+
+    private void appendChanges(Changes changes) throws SQLException {
+        long now = System.currentTimeMillis();
+        append(CHANGES, out -> writeChanges(out, changes, now));
+        applyChanges(changes, now);
+        if (journalSize() > COMPACT_BYTES) {
+            try {
+                compact();
+            } catch (IOException e) {
+                // 日志已经写好，压缩失败不影响数据，下次再试
+                System.err.println("压缩数据文件失败: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!opened) return;
+        try {
+            compact();
+        } catch (IOException e) {
+            System.err.println("保存快照失败，下次启动会重放日志: " + e.getMessage());
+        }
+        closeQuietly(journal);
+        try {
+            lock.release();
+        } catch (IOException ignored) {
+        }
+        closeQuietly(lockChannel);
+        opened = false;
+    }
+
+    @Override
+    public synchronized String describe() {
+        return String.format("文件存储 %s  日志 %dKB  写入 %d 次  压缩 %d 次  打开 %dms",
+                dir, opened ? journalSize() / 1024 : 0, appends, compactions, openMillis);
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (!opened) throw new SQLException("文件存储还没有打开: " + dir.toAbsolutePath());
+    }
+
+    // ======== 内存数据 ========
+
+    private void applyChanges(Changes changes, long timeMillis) {
+        balance += changes.balanceDelta;
+        for (Map.Entry<String, int[]> e : changes.skillDeltas.entrySet()) {
+            // 与 MySQL 的 UPDATE ... WHERE duck_name = ? 一致，不存在的小鸭子不计
+            int[] s = skillStats.get(e.getKey());
+            if (s == null) continue;
+            for (int i = 0; i < 3; i++) s[i] += e.getValue()[i];
+        }
+        for (String suit : changes.suits) suits.put(suit, timeMillis);
+        for (CallRecord call : changes.calls) calls.add(call);
+    }
+
+    private void clearState() {
+        balance = 0;
+        seq = 0;
+        skillStats.clear();
+        skillNames.clear();
+        suits.clear();
+        calls.clear();
+    }
+
+    private void applyReset() {
+        for (int[] s : skillStats.values()) {
+            s[0] = s[1] = s[2] = 0;
+        }
+    }
+
+    // ======== 日志 ========
+
+    private interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /** 追加一条记录并 force 到磁盘；失败时把日志截回原来的长度 */
+    private void append(byte type, Body body) throws SQLException {
+        long before = -1;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(seq + 1);
+            out.writeByte(type);
+            body.write(out);
+            byte[] payload = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+
+            ByteBuffer frame = ByteBuffer.allocate(8 + payload.length);
+            frame.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+            before = journal.size();
+            journal.position(before);
+            while (frame.hasRemaining()) journal.write(frame);
+            journal.force(false);
+            seq++;
+            appends++;
+        } catch (IOException e) {
+            if (before >= 0) {
+                try {
+                    journal.truncate(before);
+                } catch (IOException ignored) {
+                }
+            }
+            throw new SQLException("写入数据文件失败: " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeChanges(DataOutputStream out, Changes changes, long timeMillis) throws IOException {
+        out.writeLong(timeMillis);
+        out.writeInt(changes.balanceDelta);
+        out.writeInt(changes.skillDeltas.size());
+        for (Map.Entry<String, int[]> e : changes.skillDeltas.entrySet()) {
+            out.writeUTF(e.getKey());
+            for (int v : e.getValue()) out.writeInt(v);
+        }
+        out.writeInt(changes.suits.size());
+        for (String suit : changes.suits) out.writeUTF(suit);
+        out.writeInt(changes.calls.size());
+        for (CallRecord call : changes.calls) writeCall(out, call);
+    }
+
+    private static Changes readChanges(DataInputStream in) throws IOException {
+        int balanceDelta = in.readInt();
+        Map<String, int[]> deltas = new LinkedHashMap<>();
+        for (int n = in.readInt(); n > 0; n--) {
+            deltas.put(in.readUTF(), new int[]{in.readInt(), in.readInt(), in.readInt()});
+        }
+        Set<String> newSuits = new LinkedHashSet<>();
+        for (int n = in.readInt(); n > 0; n--) newSuits.add(in.readUTF());
+        List<CallRecord> newCalls = new ArrayList<>();
+        for (int n = in.readInt(); n > 0; n--) newCalls.add(readCall(in));
+        return new Changes(balanceDelta, deltas, newSuits, newCalls);
+    }
+
+    private static void writeCall(DataOutputStream out, CallRecord call) throws IOException {
+        out.writeUTF(call.duckName);
+        out.writeBoolean(call.wasUsed);
+        out.writeInt(call.sessionAmount);
+        out.writeLong(call.callTimeMillis);
+    }
+
+    private static CallRecord readCall(DataInputStream in) throws IOException {
+        return new CallRecord(in.readUTF(), in.readBoolean(), in.readInt(), in.readLong());
+    }
+
+    /** 重放快照之后的日志；遇到不完整或校验不过的记录就停下，并截掉它和之后的内容 */
+    private void replayJournal() throws IOException {
+        byte[] data = Files.readAllBytes(journalFile);
+        ByteBuffer buf = ByteBuffer.wrap(data);
+        int good = 0;
+        while (buf.remaining() >= 8) {
+            int length = buf.getInt();
+            int expected = buf.getInt();
+            if (length < 9 || length > buf.remaining()) break;
+            CRC32 crc = new CRC32();
+            crc.update(data, buf.position(), length);
+            if ((int) crc.getValue() != expected) break;
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, buf.position(), length));
+            long recordSeq = in.readLong();
+            byte type = in.readByte();
+            // 序号不大于快照的记录已经包含在快照里
+            if (recordSeq > seq) {
+                if (type == CHANGES) {
+                    long time = in.readLong();
+                    applyChanges(readChanges(in), time);
+                } else if (type == RESET_SKILLS) {
+                    applyReset();
+                } else {
+                    break;
+                }
+                seq = recordSeq;
+            }
+            buf.position(buf.position() + length);
+            good = buf.position();
+        }
+        if (good < data.length) {
+            System.err.println("数据日志末尾有 " + (data.length - good) + " 字节不完整（上次没有正常退出），已丢弃");
+            journal.truncate(good);
+            journal.force(false);
+        }
+    }
+
+    private long journalSize() {
+        try {
+            return journal.size();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    // ======== 快照 ========
+
+    /** 把内存数据写成新快照，原子替换旧快照后清空日志 */
+    private void compact() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeShort(VERSION);
+        out.writeLong(seq);
+        out.writeInt(balance);
+        out.writeInt(skillStats.size());
+        for (Map.Entry<String, int[]> e : skillStats.entrySet()) {
+            String skillName = skillNames.get(e.getKey());
+            out.writeUTF(e.getKey());
+            out.writeUTF(skillName != null ? skillName : "");
+            for (int v : e.getValue()) out.writeInt(v);
+        }
+        out.writeInt(suits.size());
+        for (Map.Entry<String, Long> e : suits.entrySet()) {
+            out.writeUTF(e.getKey());
+            out.writeLong(e.getValue());
+        }
+        out.writeInt(calls.names.size());
+        for (String name : calls.names) out.writeUTF(name);
+        out.writeInt(calls.size);
+        for (int i = 0; i < calls.size; i++) {
+            out.writeLong(calls.ids[i]);
+            out.writeShort(calls.ducks[i]);
+            out.writeBoolean(calls.used[i]);
+            out.writeInt(calls.amounts[i]);
+            out.writeLong(calls.times[i]);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+
+        Path tmp = dir.resolve("snapshot.tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.wrap(bytes.toByteArray());
+            while (buf.hasRemaining()) ch.write(buf);
+            ch.force(true);
+        }
+        Files.move(tmp, snapshotFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory();
+        journal.truncate(0);
+        journal.force(false);
+        compactions++;
+    }
+
+    private void readSnapshot() throws IOException, SQLException {
+        byte[] data = Files.readAllBytes(snapshotFile);
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, Math.max(0, data.length - 4));
+        if (data.length < 4 || (int) crc.getValue() != ByteBuffer.wrap(data, data.length - 4, 4).getInt()) {
+            throw new SQLException("快照文件损坏: " + snapshotFile.toAbsolutePath());
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 0, data.length - 4));
+        if (in.readInt() != SNAPSHOT_MAGIC) throw new SQLException("不是游戏数据快照: " + snapshotFile.toAbsolutePath());
+        int version = in.readShort();
+        if (version != VERSION) throw new SQLException("不支持的快照版本: " + version);
+        seq = in.readLong();
+        balance = in.readInt();
+        for (int n = in.readInt(); n > 0; n--) {
+            String name = in.readUTF();
+            String skillName = in.readUTF();
+            skillStats.put(name, new int[]{in.readInt(), in.readInt(), in.readInt()});
+            skillNames.put(name, skillName.isEmpty() ? null : skillName);
+        }
+        for (int n = in.readInt(); n > 0; n--) suits.put(in.readUTF(), in.readLong());
+        List<String> names = new ArrayList<>();
+        for (int n = in.readInt(); n > 0; n--) names.add(in.readUTF());
+        for (int n = in.readInt(); n > 0; n--) {
+            long id = in.readLong();
+            String duck = names.get(in.readShort());
+            calls.insert(id, duck, in.readBoolean(), in.readInt(), in.readLong());
+        }
+    }
+
+    /** 让改名落盘；有的平台不能打开目录，忽略即可 */
+    private void syncDirectory() {
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * 点名历史，按 (时间, id) 排序的列式数组：每行约 30 字节，几百万行也只占几十 MB，
+     * 时间窗口用二分查找定位。新记录总是最新的，几乎都追加在末尾
+     */
+    private static final class CallLog {
+        final List<String> names = new ArrayList<>();
+        final Map<String, Integer> nameIndex = new HashMap<>();
+        long[] times = new long[1024];
+        long[] ids = new long[1024];
+        int[] amounts = new int[1024];
+        short[] ducks = new short[1024];
+        boolean[] used = new boolean[1024];
+        int size;
+        long nextId = 1;
+
+        void add(CallRecord call) {
+            insert(nextId, call.duckName, call.wasUsed, call.sessionAmount, call.callTimeMillis);
+        }
+
+        void insert(long id, String duckName, boolean wasUsed, int amount, long time) {
+            if (size == times.length) {
+                int capacity = size * 2;
+                times = Arrays.copyOf(times, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+                amounts = Arrays.copyOf(amounts, capacity);
+                ducks = Arrays.copyOf(ducks, capacity);
+                used = Arrays.copyOf(used, capacity);
+            }
+            int pos = lowerBound(time, id);
+            if (pos < size) {
+                int n = size - pos;
+                System.arraycopy(times, pos, times, pos + 1, n);
+                System.arraycopy(ids, pos, ids, pos + 1, n);
+                System.arraycopy(amounts, pos, amounts, pos + 1, n);
+                System.arraycopy(ducks, pos, ducks, pos + 1, n);
+                System.arraycopy(used, pos, used, pos + 1, n);
+            }
+            times[pos] = time;
+            ids[pos] = id;
+            amounts[pos] = amount;
+            ducks[pos] = (short) duckIndex(duckName);
+            used[pos] = wasUsed;
+            size++;
+            nextId = Math.max(nextId, id + 1);
+        }
+
+        /** 第一个 (时间, id) 不小于给定值的位置 */
+        int lowerBound(long time, long id) {
+            if (size == 0 || compare(size - 1, time, id) < 0) return size;
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (compare(mid, time, id) < 0) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        private int compare(int i, long time, long id) {
+            int c = Long.compare(times[i], time);
+            return c != 0 ? c : Long.compare(ids[i], id);
+        }
+
+        private int duckIndex(String name) {
+            Integer index = nameIndex.get(name);
+            if (index == null) {
+                index = names.size();
+                names.add(name);
+                nameIndex.put(name, index);
+            }
+            return index;
+        }
+
+        CallRecord get(int i) {
+            return new CallRecord(ids[i], names.get(ducks[i]), used[i], amounts[i], times[i]);
+        }
+
+        void clear() {
+            names.clear();
+            nameIndex.clear();
+            size = 0;
+            nextId = 1;
+        }
+    }
+
+    private static void closeQuietly(FileChannel ch) {
+        try {
+            if (ch != null) ch.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package Game0_17;
+
+import java.awt.*;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 帧时间诊断
+ * 统计每帧的逻辑更新、绘制、拷贝到屏幕的耗时，GC 次数和停顿，以及实体数量；
+ * 保留最近 {@link #WINDOW} 帧的帧间隔，给出 p50/p99/最大值和分布直方图，可以叠加显示在画面上，
+ * 也可以逐帧记录到 CSV 文件离线分析。
+ * 关闭时每个测量点只读一次 volatile 标志，不调用 System.nanoTime，也不加锁。
+ * 存储和写回队列的指标可能要等磁盘或数据库，在单独的后台线程上采样，渲染线程只读最近一次的结果。
+ */
+public class FrameDiagnostics {
+
+    /** 滚动统计的帧数 */
+    public static final int WINDOW = 600;
+    /** 直方图每格 2 毫秒，最后一格包含所有更长的帧 */
+    private static final int BUCKET_MILLIS = 2;
+    private static final int BUCKETS = 25;
+    /** 叠加层文字每秒刷新几次 */
+    private static final long TEXT_REFRESH_NANOS = 250_000_000L;
+
+    private static final Font FONT = new Font("宋体", Font.PLAIN, 12);
+    private static final Color BACKGROUND = new Color(0, 0, 0, 170);
+    private static final Color BAR = new Color(80, 220, 120);
+    private static final Color BAR_SLOW = new Color(240, 80, 80);
+
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+
+    private final ExecutorService sampler = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "duck-diagnostics");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean sampling = new AtomicBoolean();
+    private volatile String storeLine = "", queueLine = "";
+
+    private volatile boolean enabled;
+    private volatile boolean overlayVisible;
+
+    // 逻辑帧在游戏循环线程累加，渲染时取走
+    private final AtomicLong tickNanos = new AtomicLong();
+    private final AtomicInteger ticks = new AtomicInteger();
+    private long paintNanos, blitNanos;
+
+    // 滚动窗口
+    private final long[] frameIntervals = new long[WINDOW];
+    private final long[] sorted = new long[WINDOW];
+    private int windowCount, windowNext;
+    private long lastFrameEnd;
+    private long lastGcCount, lastGcMillis;
+    private long frameNumber;
+
+    // 叠加层
+    private long lastTextRefresh;
+    private String[] lines = new String[0];
+    private final int[] histogram = new int[BUCKETS];
+
+    // CSV 记录
+    private BufferedWriter recorder;
+    private String recordingFile;
+
+    /** 开关统计；叠加层或记录任一打开时才需要统计 */
+    private void updateEnabled() {
+        boolean on = overlayVisible || recorder != null;
+        if (on && !enabled) {
+            windowCount = 0;
+            windowNext = 0;
+            lastFrameEnd = 0;
+            lastGcCount = gcCount();
+            lastGcMillis = gcMillis();
+        }
+        enabled = on;
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public boolean isOverlayVisible() { return overlayVisible; }
+
+    public synchronized void toggleOverlay() {
+        overlayVisible = !overlayVisible;
+        updateEnabled();
+    }
+
+    // ======== 测量点 ========
+
+    /** 开始计时，关闭时返回 0 */
+    public long begin() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public void endTick(long start) {
+        if (start == 0) return;
+        tickNanos.addAndGet(System.nanoTime() - start);
+        ticks.incrementAndGet();
+    }
+
+    public void endPaint(long start) {
+        if (start != 0) paintNanos += System.nanoTime() - start;
+    }
+
+    public void endBlit(long start) {
+        if (start != 0) blitNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * 一帧结束，在渲染线程调用；关闭时不加锁直接返回
+     * @param packets 本帧红包数量
+     * @param repaintedPixels 本帧重画的像素数
+     */
+    public void frameDone(int packets, long repaintedPixels) {
+        if (enabled) recordFrame(packets, repaintedPixels);
+    }
+
+    private synchronized void recordFrame(int packets, long repaintedPixels) {
+        if (!enabled) return;
+        long now = System.nanoTime();
+        long interval = lastFrameEnd == 0 ? 0 : now - lastFrameEnd;
+        lastFrameEnd = now;
+        long tick = tickNanos.getAndSet(0);
+        int tickCount = ticks.getAndSet(0);
+        long gcCount = gcCount(), gcMillis = gcMillis();
+        long gcCountDelta = gcCount - lastGcCount, gcMillisDelta = gcMillis - lastGcMillis;
+        lastGcCount = gcCount;
+        lastGcMillis = gcMillis;
+        frameNumber++;
+
+        if (interval > 0) {
+            frameIntervals[windowNext] = interval;
+            windowNext = (windowNext + 1) % WINDOW;
+            if (windowCount < WINDOW) windowCount++;
+        }
+
+        if (recorder != null) {
+            try {
+                recorder.write(frameNumber + "," + System.currentTimeMillis() + "," + micros(interval) + ","
+                        + micros(tick) + "," + tickCount + "," + micros(paintNanos) + "," + micros(blitNanos) + ","
+                        + gcCountDelta + "," + gcMillisDelta + "," + packets + "," + repaintedPixels);
+                recorder.newLine();
+            } catch (IOException e) {
+                System.err.println("写入诊断记录失败: " + e.getMessage());
+                closeRecorder();
+            }
+        }
+
+        if (overlayVisible && now - lastTextRefresh >= TEXT_REFRESH_NANOS) {
+            lastTextRefresh = now;
+            refreshText(tick, tickCount, packets, repaintedPixels);
+        }
+        paintNanos = 0;
+        blitNanos = 0;
+    }
+
+    private static String micros(long nanos) {
+        return String.valueOf(nanos / 1000);
+    }
+
+    private long gcCount() {
+        long sum = 0;
+        for (GarbageCollectorMXBean gc : collectors) sum += Math.max(0, gc.getCollectionCount());
+        return sum;
+    }
+
+    private long gcMillis() {
+        long sum = 0;
+        for (GarbageCollectorMXBean gc : collectors) sum += Math.max(0, gc.getCollectionTime());
+        return sum;
+    }
+
+    // ======== 滚动统计 ========
+
+    /** 最近窗口内帧间隔的百分位（纳秒），p 取 0~100 */
+    public synchronized long percentile(double p) {
+        if (windowCount == 0) return 0;
+        System.arraycopy(frameIntervals, 0, sorted, 0, windowCount);
+        Arrays.sort(sorted, 0, windowCount);
+        int idx = (int) Math.ceil(p / 100.0 * windowCount) - 1;
+        return sorted[Math.max(0, Math.min(windowCount - 1, idx))];
+    }
+
+    private void refreshText(long tick, int tickCount, int packets, long repaintedPixels) {
+        Arrays.fill(histogram, 0);
+        for (int i = 0; i < windowCount; i++) {
+            int b = (int) (frameIntervals[i] / 1_000_000L / BUCKET_MILLIS);
+            histogram[Math.min(BUCKETS - 1, b)]++;
+        }
+        lines = new String[]{
+                String.format("帧间隔 p50 %.1fms  p99 %.1fms  max %.1fms", percentile(50) / 1e6, percentile(99) / 1e6, percentile(100) / 1e6),
+                String.format("逻辑 %.2fms (%d 帧)  绘制 %.2fms  拷贝 %.2fms", tick / 1e6, tickCount, paintNanos / 1e6, blitNanos / 1e6),
+                String.format("GC %d 次 / %d ms  红包 %d  重画 %.0f%%", lastGcCount, lastGcMillis, packets,
+                        100.0 * repaintedPixels / (GameSimulation.WIDTH * GameSimulation.HEIGHT)),
+                storeLine,
+                queueLine,
+                recorder != null ? "记录中: " + recordingFile : "F3 关闭  F4 记录 CSV"
+        };
+        if (sampling.compareAndSet(false, true)) sampler.execute(this::sampleStore);
+    }
+
+    /** 在后台线程上读取存储和写回队列的指标，下一次刷新文字时显示 */
+    private void sampleStore() {
+        try {
+            storeLine = GameStore.shared().describe();
+            queueLine = writeQueueLine();
+        } finally {
+            sampling.set(false);
+        }
+    }
+
+    private static String writeQueueLine() {
+        PersistenceQueue queue = PersistenceQueue.shared();
+        return String.format("写回队列 待写 %d  写入 %d 次 平均 %.1fms 最长 %.1fms  失败 %d",
+                queue.getPendingChanges(), queue.getFlushCount(), queue.getAverageFlushMillis(),
+                queue.getMaxFlushMillis(), queue.getFailedFlushCount());
+    }
+
+    /** 画出叠加层，在画面绘制完成后调用 */
+    public synchronized void drawOverlay(Graphics g, int x, int y) {
+        if (!overlayVisible) return;
+        int w = 300, h = 20 + lines.length * 15 + 50;
+        g.setColor(BACKGROUND);
+        g.fillRect(x, y, w, h);
+        g.setFont(FONT);
+        g.setColor(Color.WHITE);
+        for (int i = 0; i < lines.length; i++) g.drawString(lines[i], x + 8, y + 18 + i * 15);
+
+        // 帧间隔直方图，超过 1/25 秒的格子标红
+        int max = 1;
+        for (int c : histogram) max = Math.max(max, c);
+        int barW = (w - 16) / BUCKETS, baseY = y + h - 8;
+        for (int b = 0; b < BUCKETS; b++) {
+            int bh = histogram[b] * 40 / max;
+            g.setColor(b * BUCKET_MILLIS >= 40 ? BAR_SLOW : BAR);
+            g.fillRect(x + 8 + b * barW, baseY - bh, barW - 1, bh);
+        }
+    }
+
+    // ======== CSV 记录 ========
+
+    /** 开始或停止记录，返回是否正在记录 */
+    public synchronized boolean toggleRecording() {
+        if (recorder != null) {
+            closeRecorder();
+        } else {
+            recordingFile = "frame-diagnostics-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".csv";
+            try {
+                recorder = new BufferedWriter(new FileWriter(recordingFile));
+                recorder.write("frame,time_ms,frame_us,tick_us,ticks,paint_us,blit_us,gc_count,gc_ms,packets,repainted_px");
+                recorder.newLine();
+                System.out.println("开始记录帧诊断: " + recordingFile);
+            } catch (IOException e) {
+                System.err.println("无法创建诊断记录文件: " + e.getMessage());
+                recorder = null;
+            }
+        }
+        updateEnabled();
+        return recorder != null;
+    }
+
+    public synchronized void closeRecorder() {
+        if (recorder == null) return;
+        try {
+            recorder.close();
+            System.out.println("帧诊断已保存: " + recordingFile);
+        } catch (IOException e) {
+            System.err.println("关闭诊断记录文件失败: " + e.getMessage());
+        }
+        recorder = null;
+        updateEnabled();
+    }
+}
@@ -1,53 +1,67 @@
 package Game0_17;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferStrategy;
 import java.io.*;
 import java.net.*;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 import javax.sound.sampled.*;
 
 public class GameFrame extends Frame {
-    public static final int WIDTH = 700;
-    public static final int HEIGHT = 700;
-    public static final int GAME_TIME = 30000;
-
-    private enum GameState { WAITING, PLAYING, GAME_OVER }
-    private GameState gameState = GameState.WAITING;
-
-    private DonaldDuck donald;
+    public static final int WIDTH = GameSimulation.WIDTH;
+    public static final int HEIGHT = GameSimulation.HEIGHT;
+    public static final int GAME_TIME = GameSimulation.GAME_TIME;
+    public static final int TARGET_TPS = GameSimulation.TICKS_PER_SECOND;
+    public static final int TARGET_FPS = Integer.getInteger("duck.fps", 60);
+    /** 主动渲染（BufferStrategy），-Dduck.render=passive 改回 repaint() + update() */
+    public static final boolean ACTIVE_RENDERING = !"passive".equals(System.getProperty("duck.render"));
+    public static final int BUFFER_COUNT = Integer.getInteger("duck.buffers", 2);
+    /** 回放录制文件（-Dduck.replay=文件），回放期间不接受输入、不写数据库 */
+    public static final String REPLAY_FILE = System.getProperty("duck.replay");
+    public static final int REPLAY_SPEED = Math.max(1, Integer.getInteger("duck.replay.speed", 1));
+
+    private final SessionReplay replay = loadReplay();
+    private final GameSimulation simulation = replay != null
+            ? new GameSimulation(System.nanoTime(), replay.getTicksPerSecond(), replay.clock())
+            : new GameSimulation(System.nanoTime(), TARGET_TPS, System::nanoTime);
+    private final SessionRecorder recorder = new SessionRecorder(SessionRecorder.DEFAULT_CAPACITY, TARGET_TPS);
     private List<LittleDuck> littleDucks = new ArrayList<>();
-    private List<RedPacket> redPackets = new ArrayList<>();
-    private GameTimer gameTimer;
-    private int totalAmount = 0;
-    private int sessionAmount = 0;
+    private final GameRenderer renderer = new GameRenderer(simulation, littleDucks);
+    private volatile int totalAmount = 0;
 
     private Image bgImg, donaldImg, littleDuckImg;
     private Image redPacketSmallImg, redPacketMiddleImg, redPacketBigImg;
 
-    private SkillType activeSkill = null;
     private LittleDuck selectedDuck = null;
+    /** 本局点名的时间和是否使用了技能，一局结束时写入点名历史 */
+    private long roundCalledAt;
+    private boolean roundSkillUsed;
+    /** 点了使用技能、正在等扣款结果 */
+    private boolean roundStarting;
 
-    private ExecutorService executor = Executors.newCachedThreadPool();
-    private SpeechService speechService = new SpeechService();
-
-    private DebuffType activeDebuff = null;
-    private boolean debuffTriggered = false;
-    private double amountMultiplier = 1.0;
+    private final GameScheduler scheduler = new GameScheduler();
+    private SpeechService speechService = new SpeechService(scheduler);
 
-    public static final String DB_URL = "jdbc:mysql://localhost:3306/duck_game?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true";
+    public static final String DB_URL = "jdbc:mysql://localhost:3306/duck_game?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true&rewriteBatchedStatements=true";
     public static final String DB_USER = "root";
     public static final String DB_PASSWORD = "thedangerinmyheart";
 
     private Button startBtn, funcBtn;
 
+    private GameLoop gameLoop;
+    private volatile double renderAlpha = 1.0;
+    private volatile BufferStrategy bufferStrategy;
+    private final GameLoop.RateCounter frameCounter = new GameLoop.RateCounter();
+    private final AllocationMeter allocationMeter = new AllocationMeter();
+    private final FrameDiagnostics diagnostics = new FrameDiagnostics();
+
     public interface DressUpSystem {
         String getCurrentStyle();
         boolean purchaseDress(String dressName, int cost, GameFrame game);
@@ -66,57 +80,185 @@ public class GameFrame extends Frame {
     public void setDressUpSystem(DressUpSystem system) { this.dressUpSystem = system; }
     public void setCodeStatsSystem(CodeStatsSystem system) { this.codeStatsSystem = system; }
 
-    public boolean deductAmount(int cost) {
-        if (totalAmount >= cost) {
-            totalAmount -= cost;
-            updateTotalAmountInDB();
-            return true;
-        }
-        return false;
+    /** 花钱的结果 */
+    public enum SpendResult { SPENT, NOT_ENOUGH, FAILED }
+
+    /** 买套装：扣钱和购买记录在同一个事务里写入，成功后更新套装缓存；结果在界面线程上交给 done */
+    public void purchaseSuit(String suitName, int cost, Consumer<SpendResult> done) {
+        spend(cost, GameStore.Changes.suitPurchase(suitName), result -> {
+            if (result == SpendResult.SPENT) SuitOwnershipCache.shared().markOwned(suitName);
+            done.accept(result);
+        });
+    }
+
+    /**
+     * 花钱：由存储用一条条件更新检查并扣除余额，purchase 在同一个事务里写入。
+     * 在写入线程上执行，界面线程不等数据库；结果回到界面线程交给 done，扣款成功时本地金额同时扣掉。
+     * 存储不可用时不扣款也不排队，结果为 FAILED
+     */
+    private void spend(int cost, GameStore.Changes purchase, Consumer<SpendResult> done) {
+        PersistenceQueue.shared().spend(cost, purchase).whenComplete((ok, e) -> SwingUtilities.invokeLater(() -> {
+            if (e != null) {
+                System.err.println("扣款失败: " + e.getMessage());
+                done.accept(SpendResult.FAILED);
+            } else if (ok) {
+                totalAmount -= cost;
+                done.accept(SpendResult.SPENT);
+            } else {
+                done.accept(SpendResult.NOT_ENOUGH);
+            }
+        }));
     }
 
     public int getTotalAmount() { return totalAmount; }
 
     public void spawnRedPacketRain(int count) {
-        Random random = new Random();
-        for (int i = 0; i < count; i++) {
-            int x = random.nextInt(WIDTH - 50);
-            RedPacket.Size size = RedPacket.Size.values()[random.nextInt(3)];
-            int sizeValue = size == RedPacket.Size.SMALL ? 20 : size == RedPacket.Size.MEDIUM ? 30 : 40;
-            redPackets.add(new RedPacket(x, 0, sizeValue, sizeValue, 3 + random.nextInt(4), size));
-        }
+        simulation.requestRain(count);
     }
 
+    /**
+     * 分阶段启动：图片（已在后台解码）和窗口先就绪并立即开始渲染，
+     * 数据库建表和读取金额在后台线程进行，完成后刷新 HUD 并启用开始按钮，MySQL 慢或不可用时窗口也会马上出现
+     */
     public GameFrame() {
+        StartupTimeline.mark("创建窗口");
         loadResources();
-        initDatabase();
-        loadTotalAmountFromDB();
+        StartupTimeline.mark("图片就绪");
         initFrame();
         initLittleDucks();
-        initDonald();
+        initSimulation();
+        renderer.setStatusMessage("正在连接数据库...");
+        startBtn.setEnabled(false);
         setVisible(true);
-        new PaintThread().start();
+        StartupTimeline.mark("窗口显示");
+        startGameLoop();
+        loadDatabaseInBackground();
+    }
+
+    private void loadDatabaseInBackground() {
+        Thread loader = new Thread(() -> {
+            boolean ok = initDatabase() && loadTotalAmountFromDB();
+            if (ok) SuitOwnershipCache.shared().refresh();
+            renderer.setStatusMessage(ok ? null : "数据库不可用，金额不会保存");
+            StartupTimeline.databaseDone(ok);
+            SwingUtilities.invokeLater(() -> {
+                if (replay == null && !roundStarting && simulation.getState() == GameSimulation.State.WAITING) {
+                    startBtn.setEnabled(true);
+                }
+            });
+        }, "duck-startup-db");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void startGameLoop() {
+        initActiveRendering();
+        gameLoop = new GameLoop(new GameLoop.Callbacks() {
+            public void tick() {
+                long start = diagnostics.begin();
+                if (replay != null && !replay.isFinished() && !replay.feedNextTick(simulation)) {
+                    renderer.setStatusMessage("回放结束，共 " + replay.getTicks() + " 逻辑帧");
+                }
+                simulation.tick();
+                diagnostics.endTick(start);
+            }
+            public void render(double alpha) {
+                renderAlpha = alpha;
+                if (bufferStrategy != null) renderActive();
+                else repaint();
+            }
+        }, replay != null ? replay.getTicksPerSecond() * REPLAY_SPEED : TARGET_TPS, TARGET_FPS);
+        gameLoop.start(scheduler);
     }
 
-    private void loadResources() {
+    /**
+     * 创建 BufferStrategy（页面翻转或基于 VolatileImage 的复制），之后由游戏循环线程直接绘制，
+     * 不再经过 AWT 的 repaint 队列。窗口必须已经显示；创建失败时保留 update() 路径
+     */
+    private void initActiveRendering() {
+        if (!ACTIVE_RENDERING) return;
         try {
-            bgImg = loadImage("/images/R-C.jpg");
-            donaldImg = loadImage("/images/duck.jpg");
-            littleDuckImg = loadImage("/images/little_duck.png");
-            redPacketSmallImg = loadImage("/images/redpacket.png");
-            redPacketMiddleImg = loadImage("/images/redpacket-middle.png");
-            redPacketBigImg = loadImage("/images/redpacket-big.png");
-        } catch (Exception e) {
-            System.err.println("资源加载失败: " + e.getMessage());
+            setIgnoreRepaint(true);
+            createBufferStrategy(BUFFER_COUNT);
+            bufferStrategy = getBufferStrategy();
+        } catch (RuntimeException e) {
+            System.err.println("无法创建 BufferStrategy，改用 repaint 渲染: " + e);
+            fallBackToPassiveRendering();
         }
     }
 
-    private Image loadImage(String path) {
-        URL url = getClass().getResource(path);
-        if (url != null) {
-            try { return ImageIO.read(url); } catch (IOException e) { throw new RuntimeException(e); }
+    private void fallBackToPassiveRendering() {
+        bufferStrategy = null;
+        setIgnoreRepaint(false);
+        repaint();
+    }
+
+    /** 在游戏循环线程上画一帧并翻页，显存内容丢失时重画 */
+    private void renderActive() {
+        BufferStrategy strategy = bufferStrategy;
+        try {
+            do {
+                do {
+                    Graphics g = strategy.getDrawGraphics();
+                    try {
+                        allocationMeter.begin();
+                        paint(g);
+                        allocationMeter.end();
+                    } finally {
+                        g.dispose();
+                    }
+                } while (strategy.contentsRestored());
+                long start = diagnostics.begin();
+                strategy.show();
+                diagnostics.endBlit(start);
+            } while (strategy.contentsLost());
+            Toolkit.getDefaultToolkit().sync();
+            frameCounter.increment();
+            StartupTimeline.firstFrame();
+            diagnostics.frameDone(renderer.getLastPacketCount(), renderer.getLastRepaintedPixels());
+        } catch (IllegalStateException e) {
+            // 窗口的 peer 已失效（例如正在关闭或重建），退回 update() 路径
+            fallBackToPassiveRendering();
+        }
+    }
+
+    private static SessionReplay loadReplay() {
+        if (REPLAY_FILE == null) return null;
+        try {
+            SessionReplay r = SessionReplay.load(REPLAY_FILE);
+            System.out.println("回放 " + REPLAY_FILE + "，" + REPLAY_SPEED + " 倍速");
+            return r;
+        } catch (IOException e) {
+            System.err.println("无法读取回放文件: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** 把录制缓冲中保留的对局保存成文件，用 SessionReplay 回放 */
+    private void saveRecording() {
+        String file = "session-" + new java.text.SimpleDateFormat("yyyyMMdd-HHmmss").format(new java.util.Date()) + ".duckrec";
+        try {
+            recorder.save(file);
+            System.out.println("对局录制已保存: " + file + "（" + recorder.getRoundCount() + " 局，"
+                    + recorder.getBytesUsed() + " 字节）");
+        } catch (IOException e) {
+            System.err.println("保存对局录制失败: " + e.getMessage());
+        }
+    }
+
+    private void loadResources() {
+        try {
+            bgImg = ImageRegistry.get(ImageRegistry.BACKGROUND);
+            donaldImg = ImageRegistry.get(ImageRegistry.DONALD);
+            littleDuckImg = ImageRegistry.get(ImageRegistry.LITTLE_DUCK);
+            redPacketSmallImg = ImageRegistry.get(ImageRegistry.RED_PACKET_SMALL);
+            redPacketMiddleImg = ImageRegistry.get(ImageRegistry.RED_PACKET_MIDDLE);
+            redPacketBigImg = ImageRegistry.get(ImageRegistry.RED_PACKET_BIG);
+            renderer.setImages(bgImg, littleDuckImg, redPacketSmallImg, redPacketMiddleImg, redPacketBigImg);
+            renderer.preloadDonald(donaldImg);
+        } catch (Exception e) {
+            System.err.println("资源加载失败: " + e.getMessage());
         }
-        return null;
     }
 
     private void initFrame() {
@@ -129,7 +271,13 @@ public class GameFrame extends Frame {
         funcBtn = new Button("FUNCTION");
         funcBtn.setBounds(10, 30, 80, 30);
         funcBtn.addActionListener(e -> {
-            showFunctionDialog();
+            // 模态菜单打开期间暂停本局，倒计时不会在玩家看菜单时流逝
+            simulation.requestPause();
+            try {
+                showFunctionDialog();
+            } finally {
+                simulation.requestResume();
+            }
             requestFocusForGame();
         });
         add(funcBtn);
@@ -141,23 +289,33 @@ public class GameFrame extends Frame {
 
         addWindowListener(new WindowAdapter() {
             public void windowClosing(WindowEvent e) {
-                executor.shutdownNow();
+                gameLoop.stop();
+                scheduler.shutdown();
+                diagnostics.closeRecorder();
+                PersistenceQueue.shared().shutdown();
+                GameStore.shared().close();
                 System.exit(0);
             }
         });
 
         addKeyListener(new KeyAdapter() {
             public void keyPressed(KeyEvent e) {
-                if (gameState == GameState.PLAYING && donald != null) {
-                    handleKeyWithDebuff(e.getKeyCode(), true);
+                if (replay == null && simulation.getState() == GameSimulation.State.PLAYING) {
+                    simulation.submitKey(e.getKeyCode(), true);
                 }
                 if (e.getKeyCode() == KeyEvent.VK_Z) {
                     triggerRandomDuckVoice();
+                } else if (e.getKeyCode() == KeyEvent.VK_F3) {
+                    diagnostics.toggleOverlay();
+                } else if (e.getKeyCode() == KeyEvent.VK_F4) {
+                    diagnostics.toggleRecording();
+                } else if (e.getKeyCode() == KeyEvent.VK_F5 && replay == null) {
+                    saveRecording();
                 }
             }
             public void keyReleased(KeyEvent e) {
-                if (gameState == GameState.PLAYING && donald != null) {
-                    handleKeyWithDebuff(e.getKeyCode(), false);
+                if (replay == null && simulation.getState() == GameSimulation.State.PLAYING) {
+                    simulation.submitKey(e.getKeyCode(), false);
                 }
             }
         });
@@ -165,7 +323,7 @@ public class GameFrame extends Frame {
         addMouseListener(new MouseAdapter() {
             public void mouseClicked(MouseEvent e) {
                 requestFocusForGame();
-                if (gameState == GameState.GAME_OVER) {
+                if (replay == null && simulation.getState() == GameSimulation.State.GAME_OVER) {
                     if (isInButton(e.getX(), e.getY(), WIDTH/2 - 100, HEIGHT/2 + 100, 200, 50)) {
                         resetToWaiting();
                     }
@@ -179,107 +337,90 @@ public class GameFrame extends Frame {
         });
     }
 
-    private void handleKeyWithDebuff(int keyCode, boolean pressed) {
-        int actualKey = keyCode;
-        if (activeDebuff == DebuffType.REVERSE_WORLD) {
-            if (keyCode == KeyEvent.VK_LEFT) actualKey = KeyEvent.VK_RIGHT;
-            else if (keyCode == KeyEvent.VK_RIGHT) actualKey = KeyEvent.VK_LEFT;
-        } else if (activeDebuff == DebuffType.NO_FLY) {
-            if (keyCode == KeyEvent.VK_UP || keyCode == KeyEvent.VK_DOWN) return;
-        }
-        if (pressed) donald.handleKeyPress(actualKey);
-        else donald.handleKeyRelease(actualKey);
-    }
-
     private void requestFocusForGame() {
         this.requestFocus();
         this.requestFocusInWindow();
     }
 
-    private void initDonald() {
-        donald = new DonaldDuck(WIDTH / 2 - 30, HEIGHT - 150, 60, 60, 5);
+    private void initSimulation() {
+        renderer.setScheduler(scheduler);
+        renderer.setAllocationMeter(allocationMeter);
+        if (replay != null) {
+            startBtn.setEnabled(false);
+            funcBtn.setEnabled(false);
+        } else {
+            simulation.setRecorder(recorder);
+        }
+        simulation.setListener(new GameSimulation.Listener() {
+            public void onDebuffTriggered(DebuffType debuff) {
+                speechService.speakForRound("警告！" + debuff.getDescription() + "！");
+            }
+            public void onRoundEnded(int finalAmount, boolean doubled) {
+                SwingUtilities.invokeLater(() -> endGame(finalAmount, doubled));
+            }
+            public void onPacketCaught(int x, int y, int amount) {
+                renderer.getParticles().requestCatch(x, y, amount);
+            }
+            public void onRedPacketRain(int count) {
+                renderer.getParticles().requestRain(count);
+            }
+        });
     }
 
     private void initLittleDucks() {
         littleDucks.clear();
-        String[] names = {"唐小哥", "唐老二", "唐小弟"};
-        SkillType[] skills = {SkillType.SPEED_UP, SkillType.SIZE_UP, SkillType.AMOUNT_UP};
-        int baseY = HEIGHT - 80;
-        int spacing = WIDTH / 4;
-        for (int i = 0; i < 3; i++) {
-            LittleDuck duck = new LittleDuck(spacing * (i + 1) - 20, baseY, 50, 50, names[i], skills[i]);
-            littleDucks.add(duck);
-        }
+        littleDucks.addAll(LittleDuck.createDefaults());
     }
 
     private void startGame() {
-        if (gameState != GameState.WAITING) return;
+        if (roundStarting || simulation.getState() != GameSimulation.State.WAITING) return;
 
-        Random rand = new Random();
-        int idx = rand.nextInt(3);
-        selectedDuck = littleDucks.get(idx);
+        selectedDuck = littleDucks.get(simulation.rollDuck(littleDucks.size()));
 
         speakSkillCallout(selectedDuck.getName(), selectedDuck.getSkill());
         recordDuckCalled(selectedDuck.getName());
+        roundCalledAt = System.currentTimeMillis();
+        roundSkillUsed = false;
 
         int choice = JOptionPane.showConfirmDialog(this,
                 "点到了【" + selectedDuck.getName() + "】！\n技能：" + selectedDuck.getSkill().getDescription() +
                         "\n\n是否花费50元使用该技能？", "技能选择", JOptionPane.YES_NO_OPTION);
 
         if (choice == JOptionPane.YES_OPTION) {
-            if (totalAmount >= 50) {
-                totalAmount -= 50;
-                updateTotalAmountInDB();
-                activeSkill = selectedDuck.getSkill();
-                applySkill(activeSkill);
-                recordSkillUsed(selectedDuck.getName(), true);
-                speechService.speak("技能已激活，" + activeSkill.getDescription() + "，消耗50元");
-            } else {
-                JOptionPane.showMessageDialog(this,
-                        "金额不足，请积累足够基金再使用该技能",
-                        "提示", JOptionPane.WARNING_MESSAGE);
-                activeSkill = null;
-                recordSkillUsed(selectedDuck.getName(), false);
-                speechService.speak("金额不足，无法使用技能");
-            }
+            // 扣款完成前不能再开一局
+            roundStarting = true;
+            startBtn.setEnabled(false);
+            LittleDuck duck = selectedDuck;
+            spend(50, GameStore.Changes.skillPurchase(duck.getName()), result -> {
+                SkillType skill = null;
+                if (result == SpendResult.SPENT) {
+                    skill = duck.getSkill();
+                    roundSkillUsed = true;
+                    speechService.speak("技能已激活，" + skill.getDescription() + "，消耗50元");
+                } else {
+                    JOptionPane.showMessageDialog(this,
+                            result == SpendResult.NOT_ENOUGH ? "金额不足，请积累足够基金再使用该技能"
+                                    : "数据库不可用，暂时不能使用技能",
+                            "提示", JOptionPane.WARNING_MESSAGE);
+                    recordSkillUsed(duck.getName(), false);
+                    speechService.speak(result == SpendResult.NOT_ENOUGH ? "金额不足，无法使用技能" : "无法使用技能");
+                }
+                beginRound(skill);
+            });
         } else {
-            activeSkill = null;
             recordSkillUsed(selectedDuck.getName(), false);
             speechService.speak("技能未使用");
+            beginRound(null);
         }
+    }
 
-        activeDebuff = null;
-        debuffTriggered = false;
-        amountMultiplier = 1.0;
-
-        gameState = GameState.PLAYING;
-        sessionAmount = 0;
-        redPackets.clear();
-        spawnInitialRedPackets();
+    private void beginRound(SkillType skill) {
+        roundStarting = false;
+        simulation.requestStart(skill);
         startBtn.setEnabled(false);
-
-        gameTimer = new GameTimer(GAME_TIME, () -> endGame(), this);
-        gameTimer.start();
-        new RedPacketSpawner().start();
         requestFocusForGame();
     }
 
-    public void triggerRandomDebuff() {
-        if (debuffTriggered) return;
-        debuffTriggered = true;
-
-        Random rand = new Random();
-        DebuffType[] debuffs = DebuffType.values();
-        activeDebuff = debuffs[rand.nextInt(debuffs.length)];
-
-        speechService.speak("警告！" + activeDebuff.getDescription() + "！");
-
-        if (activeDebuff == DebuffType.EIGHT_GATES) {
-            amountMultiplier = 2.0;
-            if (gameTimer != null) gameTimer.setRemainingTime(5000);
-        }
-    }
-
     private void speakSkillCallout(String duckName, SkillType skill) {
         String skillText;
         switch (skill) {
@@ -291,54 +432,29 @@ public class GameFrame extends Frame {
         speechService.speak("点名，" + duckName + "，技能，" + skillText);
     }
 
-    private void applySkill(SkillType skill) {
-        switch (skill) {
-            case SPEED_UP: donald.setSpeed(donald.getSpeed() + 3); break;
-            case SIZE_UP: donald.setWidth(80); donald.setHeight(80); break;
-            case AMOUNT_UP: break;
-        }
-    }
-
-    private void endGame() {
-        gameState = GameState.GAME_OVER;
-        int finalAmount = (int)(sessionAmount * amountMultiplier);
-        if (amountMultiplier > 1.0) {
+    private void endGame(int finalAmount, boolean doubled) {
+        scheduler.cancelRoundTasks();
+        if (replay != null) return;
+        if (doubled) {
             speechService.speak("八门齐开！收益翻倍！获得" + finalAmount + "元");
         } else {
             speechService.speak("游戏结束，本局获得" + finalAmount + "元");
         }
-        sessionAmount = finalAmount;
-        totalAmount += sessionAmount;
-        updateTotalAmountInDB();
-        donald.setSpeed(5);
-        donald.setWidth(60);
-        donald.setHeight(60);
-        activeSkill = null;
-        activeDebuff = null;
+        totalAmount += finalAmount;
+        PersistenceQueue.shared().addBalance(finalAmount);
+        if (selectedDuck != null) {
+            PersistenceQueue.shared().roundPlayed(
+                    new GameStore.CallRecord(selectedDuck.getName(), roundSkillUsed, finalAmount, roundCalledAt));
+        }
     }
 
     private void resetToWaiting() {
-        gameState = GameState.WAITING;
-        sessionAmount = 0;
-        redPackets.clear();
-        initDonald();
+        scheduler.cancelRoundTasks();
+        simulation.requestReset();
         startBtn.setEnabled(true);
-        activeDebuff = null;
-        debuffTriggered = false;
-        amountMultiplier = 1.0;
         requestFocusForGame();
     }
 
-    private void spawnInitialRedPackets() {
-        Random random = new Random();
-        for (int i = 0; i < 8; i++) {
-            int x = random.nextInt(WIDTH - 50);
-            RedPacket.Size size = RedPacket.Size.values()[random.nextInt(3)];
-            int sizeValue = size == RedPacket.Size.SMALL ? 20 : size == RedPacket.Size.MEDIUM ? 30 : 40;
-            redPackets.add(new RedPacket(x, random.nextInt(200), sizeValue, sizeValue, 2 + random.nextInt(3), size));
-        }
-    }
-
     private void showFunctionDialog() {
         String[] options = {"抢红包(当前)", "换装系统", "代码统计", "技能统计", "技能点名系统", "🤖 AI对话"};
         int choice = JOptionPane.showOptionDialog(this, "选择功能模块", "功能菜单",
@@ -370,9 +486,7 @@ public class GameFrame extends Frame {
     }
 
     private void triggerRandomDuckVoice() {
-        Random rand = new Random();
-        int idx = rand.nextInt(3);
-        LittleDuck duck = littleDucks.get(idx);
+        int idx = ThreadLocalRandom.current().nextInt(3);
         String[] phrases = {"恭喜你发财", "恭喜你精彩", "新年快乐"};
         speechService.speak(phrases[idx]);
     }
@@ -381,188 +495,70 @@ public class GameFrame extends Frame {
         return x >= bx && x <= bx + bw && y >= by && y <= by + bh;
     }
 
-    private Image getRedPacketImage(RedPacket.Size size) {
-        switch (size) {
-            case SMALL: return redPacketSmallImg;
-            case MEDIUM: return redPacketMiddleImg;
-            case LARGE: return redPacketBigImg;
-            default: return redPacketSmallImg;
+    /** 打开存储（MySQL 建表或读取本地数据文件），失败时返回 false */
+    private boolean initDatabase() {
+        try {
+            GameStore.shared().open();
+            return true;
+        } catch (SQLException e) {
+            System.err.println("数据库初始化失败: " + e.getMessage());
+            return false;
         }
     }
 
-
-    private void initDatabase() {
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-             Statement stmt = conn.createStatement()) {
-            stmt.execute("CREATE TABLE IF NOT EXISTS game_stats (id INT PRIMARY KEY, total_amount INT DEFAULT 0)");
-            stmt.execute("INSERT IGNORE INTO game_stats (id, total_amount) VALUES (1, 0)");
-            stmt.execute("CREATE TABLE IF NOT EXISTS skill_stats (" +
-                    "duck_name VARCHAR(20) PRIMARY KEY, called_count INT DEFAULT 0, " +
-                    "used_count INT DEFAULT 0, not_used_count INT DEFAULT 0)");
-            for (String name : new String[]{"唐小哥", "唐老二", "唐小弟"}) {
-                stmt.execute("INSERT IGNORE INTO skill_stats (duck_name) VALUES ('" + name + "')");
-            }
-            stmt.execute("CREATE TABLE IF NOT EXISTS suit_purchases (" +
-                    "suit_name VARCHAR(50) PRIMARY KEY, " +
-                    "is_purchased BOOLEAN DEFAULT FALSE, " +
-                    "purchase_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
-        } catch (SQLException e) { System.err.println("数据库初始化失败: " + e.getMessage()); }
-    }
-
-    private void loadTotalAmountFromDB() {
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT total_amount FROM game_stats WHERE id=1")) {
-            if (rs.next()) totalAmount = rs.getInt("total_amount");
-        } catch (SQLException e) { System.err.println("读取金额失败: " + e.getMessage()); }
-    }
-
-    private void updateTotalAmountInDB() {
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-             PreparedStatement ps = conn.prepareStatement("UPDATE game_stats SET total_amount=? WHERE id=1")) {
-            ps.setInt(1, totalAmount);
-            ps.executeUpdate();
-        } catch (SQLException e) { System.err.println("更新金额失败: " + e.getMessage()); }
+    private boolean loadTotalAmountFromDB() {
+        try {
+            totalAmount = GameStore.shared().loadBalance();
+            return true;
+        } catch (SQLException e) {
+            System.err.println("读取金额失败: " + e.getMessage());
+            return false;
+        }
     }
 
+    // 写入都进 PersistenceQueue，由后台线程合并后批量写入，界面线程不等数据库；花钱走 spend()
     private void recordDuckCalled(String duckName) {
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-             PreparedStatement ps = conn.prepareStatement(
-                     "UPDATE skill_stats SET called_count = called_count + 1 WHERE duck_name = ?")) {
-            ps.setString(1, duckName);
-            ps.executeUpdate();
-        } catch (SQLException e) { e.printStackTrace(); }
+        PersistenceQueue.shared().duckCalled(duckName);
     }
 
     private void recordSkillUsed(String duckName, boolean used) {
-        String col = used ? "used_count" : "not_used_count";
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-             PreparedStatement ps = conn.prepareStatement(
-                     "UPDATE skill_stats SET " + col + " = " + col + " + 1 WHERE duck_name = ?")) {
-            ps.setString(1, duckName);
-            ps.executeUpdate();
-        } catch (SQLException e) { e.printStackTrace(); }
-    }
-
-    class PaintThread extends Thread {
-        public void run() {
-            while (true) {
-                if (gameState == GameState.PLAYING) updateGame();
-                repaint();
-                try { Thread.sleep(40); } catch (InterruptedException e) {}
-            }
-        }
-    }
-
-    class RedPacketSpawner extends Thread {
-        public void run() {
-            Random random = new Random();
-            while (gameState == GameState.PLAYING) {
-                int x = random.nextInt(WIDTH - 50);
-                RedPacket.Size size = RedPacket.Size.values()[random.nextInt(3)];
-                int sizeValue = size == RedPacket.Size.SMALL ? 20 : size == RedPacket.Size.MEDIUM ? 30 : 40;
-                redPackets.add(new RedPacket(x, 0, sizeValue, sizeValue, 2 + random.nextInt(3), size));
-                try { Thread.sleep(800 + random.nextInt(1000)); } catch (InterruptedException e) {}
-            }
-        }
-    }
-
-    private void updateGame() {
-        if (donald == null) return;
-        if (activeDebuff == DebuffType.NO_FLY) donald.applyGravity(HEIGHT);
-        donald.updatePosition(WIDTH, HEIGHT);
-
-        List<RedPacket> toRemove = new ArrayList<>();
-        for (RedPacket rp : redPackets) {
-            rp.updatePosition();
-            if (rp.getY() > HEIGHT) toRemove.add(rp);
-            else if (donald.collidesWith(rp)) {
-                int amt = rp.getAmount();
-                if (activeSkill == SkillType.AMOUNT_UP) amt = (int)(amt * 1.5);
-                sessionAmount += amt;
-                toRemove.add(rp);
-            }
-        }
-        redPackets.removeAll(toRemove);
+        PersistenceQueue.shared().skillUsed(duckName, used);
     }
 
     @Override
     public void paint(Graphics g) {
-        if (bgImg != null) g.drawImage(bgImg, 0, 0, WIDTH, HEIGHT, null);
-        else { g.setColor(Color.WHITE); g.fillRect(0, 0, WIDTH, HEIGHT); }
-
-        if (activeDebuff != null && gameState == GameState.PLAYING) {
-            g.setColor(activeDebuff.getOverlayColor());
-            g.fillRect(0, 0, WIDTH, HEIGHT);
-        }
-
-        if (donald != null) {
-            Image img = (dressUpSystem != null) ? dressUpSystem.getDonaldImage() : donaldImg;
-            if (img != null) g.drawImage(img, donald.getX(), donald.getY(), donald.getWidth(), donald.getHeight(), null);
-            else { g.setColor(Color.YELLOW); g.fillOval(donald.getX(), donald.getY(), donald.getWidth(), donald.getHeight()); }
-        }
-
-        for (LittleDuck duck : littleDucks) {
-            if (littleDuckImg != null) g.drawImage(littleDuckImg, duck.getX(), duck.getY(), duck.getWidth(), duck.getHeight(), null);
-            else { g.setColor(Color.ORANGE); g.fillOval(duck.getX(), duck.getY(), duck.getWidth(), duck.getHeight()); }
-            g.setColor(Color.BLACK);
-            g.setFont(new Font("宋体", Font.PLAIN, 12));
-            g.drawString(duck.getName(), duck.getX(), duck.getY() + duck.getHeight() + 15);
-        }
-
-        for (RedPacket rp : redPackets) {
-            Image img = getRedPacketImage(rp.getSize());
-            rp.draw(g, img);
-        }
-
-        g.setColor(Color.BLACK);
-        g.setFont(new Font("宋体", Font.BOLD, 16));
-        g.drawString("总金额: " + totalAmount + "元", 200, 45);
-        String sessionText = "本局: " + sessionAmount + "元";
-        if (amountMultiplier > 1.0) sessionText += " (x" + amountMultiplier + ")";
-        g.drawString(sessionText, 350, 45);
-
-        if (gameTimer != null && gameState == GameState.PLAYING) {
-            int remaining = gameTimer.getRemainingTime() / 1000;
-            if (remaining <= 10) { g.setColor(Color.RED); g.setFont(new Font("宋体", Font.BOLD, 18)); }
-            g.drawString("剩余: " + remaining + "秒", 480, 45);
-            g.setColor(Color.BLACK); g.setFont(new Font("宋体", Font.BOLD, 16));
-        }
-
-        if (activeSkill != null) g.drawString("技能: " + activeSkill.getDescription(), 200, 65);
-        if (activeDebuff != null && gameState == GameState.PLAYING) {
-            g.setColor(Color.RED); g.setFont(new Font("宋体", Font.BOLD, 16));
-            g.drawString("⚠ " + activeDebuff.getDescription(), 350, 65);
-        }
-
-        g.setColor(Color.GRAY); g.setFont(new Font("宋体", Font.PLAIN, 12));
-        g.drawString("按Z键：小鸭说话", 580, 45);
-
-        if (gameState == GameState.GAME_OVER) {
-            g.setColor(new Color(255, 0, 0, 180)); g.fillRect(0, 0, WIDTH, HEIGHT);
-            g.setColor(Color.WHITE); g.setFont(new Font("宋体", Font.BOLD, 36));
-            g.drawString("游戏结束", WIDTH/2 - 80, HEIGHT/2 - 20);
-            String resultText = "本局获得: " + sessionAmount + "元";
-            if (amountMultiplier > 1.0) resultText += " (翻倍!)";
-            g.drawString(resultText, WIDTH/2 - 140, HEIGHT/2 + 30);
-            g.setColor(new Color(255, 215, 0));
-            g.fillRoundRect(WIDTH/2 - 100, HEIGHT/2 + 100, 200, 50, 15, 15);
-            g.setColor(Color.RED); g.setFont(new Font("宋体", Font.BOLD, 20));
-            g.drawString("再来一次", WIDTH/2 - 45, HEIGHT/2 + 132);
+        Image donaldImage = (dressUpSystem != null) ? dressUpSystem.getDonaldImage() : donaldImg;
+        int tps = gameLoop != null ? gameLoop.getTicksPerSecond() : 0;
+        // 渲染器在保留的帧图片上只重画变化的区域，再整张拷贝到窗口
+        long start = diagnostics.begin();
+        Image frame = renderer.renderRetained(renderAlpha, donaldImage, totalAmount, tps, frameCounter.getRate());
+        if (bufferStrategy != null) {
+            // 主动渲染时这里只是画进后台缓冲，算作绘制；拷贝到屏幕是 strategy.show()，在 renderActive 里计时
+            g.drawImage(frame, 0, 0, null);
+            diagnostics.endPaint(start);
+        } else {
+            diagnostics.endPaint(start);
+            start = diagnostics.begin();
+            g.drawImage(frame, 0, 0, null);
+            diagnostics.endBlit(start);
         }
+        // 诊断叠加层画在窗口上而不是保留帧里，不影响脏矩形
+        if (diagnostics.isOverlayVisible()) diagnostics.drawOverlay(g, 10, HEIGHT - 130);
     }
 
-    private Image offScreenImage;
     @Override
     public void update(Graphics g) {
-        if (offScreenImage == null) offScreenImage = createImage(WIDTH, HEIGHT);
-        Graphics gOff = offScreenImage.getGraphics();
-        paint(gOff);
-        g.drawImage(offScreenImage, 0, 0, null);
+        if (bufferStrategy != null) return;  // 主动渲染时由游戏循环线程绘制
+        allocationMeter.begin();
+        paint(g);
+        allocationMeter.end();
+        frameCounter.increment();
+        StartupTimeline.firstFrame();
+        diagnostics.frameDone(renderer.getLastPacketCount(), renderer.getLastRepaintedPixels());
     }
 
-    public DonaldDuck getDonaldDuck() { return donald; }
-    public boolean isPlaying() { return gameState == GameState.PLAYING; }
+    public DonaldDuck getDonaldDuck() { return simulation.getDonald(); }
+    public boolean isPlaying() { return simulation.getState() == GameSimulation.State.PLAYING; }
 
     public static void main(String[] args) {
         SwingUtilities.invokeLater(GameFrame::new);
@@ -801,183 +797,33 @@ class AIChatDialog extends JDialog {
     }
 }
 
-enum DebuffType {
-    REVERSE_WORLD("颠倒世界", "左右颠倒", new Color(128, 0, 128, 50)),
-    NO_FLY("飞行无力", "无法飞行", new Color(100, 100, 100, 50)),
-    EIGHT_GATES("八门齐开", "5秒翻倍", new Color(255, 215, 0, 50));
-
-    private String name, shortDesc;
-    private Color overlayColor;
-
-    DebuffType(String name, String shortDesc, Color color) {
-        this.name = name; this.shortDesc = shortDesc; this.overlayColor = color;
-    }
-
-    public String getDescription() { return name + " - " + shortDesc; }
-    public Color getOverlayColor() { return overlayColor; }
-}
-
 class SpeechService {
-    public void speak(String text) {
-        new Thread(() -> {
-            try {
-                String cmd = String.format(
-                        "Add-Type -AssemblyName System.Speech; " +
-                                "$synth = New-Object System.Speech.Synthesis.SpeechSynthesizer; " +
-                                "$synth.Rate = 2; $synth.Volume = 100; $synth.Speak('%s')",
-                        text.replace("'", "''")
-                );
-                new ProcessBuilder("powershell", "-Command", cmd)
-                        .redirectErrorStream(true).start();
-            } catch (Exception e) {
-                Toolkit.getDefaultToolkit().beep();
-            }
-        }).start();
-    }
-}
-
-enum SkillType {
-    SPEED_UP("速度+3"), SIZE_UP("体积变大"), AMOUNT_UP("金额x1.5");
-    private String desc;
-    SkillType(String desc) { this.desc = desc; }
-    public String getDescription() { return desc; }
-}
-
-class DonaldDuck {
-    private int x, y, width, height, speed, gravity = 2;
-    private boolean left, right, up, down;
-
-    public DonaldDuck(int x, int y, int w, int h, int speed) {
-        this.x = x; this.y = y; this.width = w; this.height = h; this.speed = speed;
-    }
-
-    public void handleKeyPress(int key) {
-        switch (key) {
-            case KeyEvent.VK_LEFT: left = true; break;
-            case KeyEvent.VK_RIGHT: right = true; break;
-            case KeyEvent.VK_UP: up = true; break;
-            case KeyEvent.VK_DOWN: down = true; break;
-        }
-    }
-
-    public void handleKeyRelease(int key) {
-        switch (key) {
-            case KeyEvent.VK_LEFT: left = false; break;
-            case KeyEvent.VK_RIGHT: right = false; break;
-            case KeyEvent.VK_UP: up = false; break;
-            case KeyEvent.VK_DOWN: down = false; break;
-        }
-    }
-
-    public void applyGravity(int maxH) { if (y < maxH - height) y += gravity; }
-
-    public void updatePosition(int maxW, int maxH) {
-        if (left && x > 0) x -= speed;
-        if (right && x < maxW - width) x += speed;
-        if (up && y > 60) y -= speed;
-        if (down && y < maxH - height) y += speed;
-    }
-
-    public boolean collidesWith(RedPacket rp) {
-        return x < rp.getX() + rp.getWidth() && x + width > rp.getX() &&
-                y < rp.getY() + rp.getHeight() && y + height > rp.getY();
-    }
-
-    public int getX() { return x; }
-    public int getY() { return y; }
-    public int getWidth() { return width; }
-    public int getHeight() { return height; }
-    public int getSpeed() { return speed; }
-    public void setSpeed(int s) { speed = s; }
-    public void setWidth(int w) { width = w; }
-    public void setHeight(int h) { height = h; }
-}
-
-class LittleDuck {
-    private int x, y, width, height;
-    private String name;
-    private SkillType skill;
-
-    public LittleDuck(int x, int y, int w, int h, String name, SkillType skill) {
-        this.x = x; this.y = y; this.width = w; this.height = h;
-        this.name = name; this.skill = skill;
-    }
+    private final GameScheduler scheduler;
 
-    public int getX() { return x; }
-    public int getY() { return y; }
-    public int getWidth() { return width; }
-    public int getHeight() { return height; }
-    public String getName() { return name; }
-    public SkillType getSkill() { return skill; }
-}
-
-class RedPacket {
-    public enum Size { SMALL, MEDIUM, LARGE }
-
-    private int x, y, width, height, speed, amount;
-    private Size size;
-
-    public RedPacket(int x, int y, int w, int h, int speed, Size size) {
-        this.x = x; this.y = y; this.width = w; this.height = h;
-        this.speed = speed; this.size = size;
-        this.amount = calcAmount();
-    }
+    public SpeechService(GameScheduler scheduler) { this.scheduler = scheduler; }
 
-    private int calcAmount() {
-        switch (size) {
-            case SMALL: return 1 + new Random().nextInt(4);
-            case MEDIUM: return 5 + new Random().nextInt(10);
-            case LARGE: return 15 + new Random().nextInt(15);
-        }
-        return 1;
-    }
-
-    public void updatePosition() { y += speed; }
-
-    public void draw(Graphics g, Image img) {
-        if (img != null) {
-            g.drawImage(img, x, y, width, height, null);
-        } else {
-            g.setColor(Color.RED);
-            g.fillRect(x, y, width, height);
-        }
-        g.setColor(Color.YELLOW);
-        g.drawString(String.valueOf(amount), x + width/2 - 5, y + height/2 + 5);
+    public void speak(String text) {
+        scheduler.execute(() -> say(text));
     }
 
-    public int getX() { return x; }
-    public int getY() { return y; }
-    public int getWidth() { return width; }
-    public int getHeight() { return height; }
-    public int getAmount() { return amount; }
-    public Size getSize() { return size; }
-}
-
-class GameTimer extends Thread {
-    private int remaining;
-    private Runnable onFinish;
-    private GameFrame gameFrame;
-    private boolean debuffNotified = false;
-
-    public GameTimer(int total, Runnable onFinish, GameFrame gameFrame) {
-        this.remaining = total; this.onFinish = onFinish; this.gameFrame = gameFrame;
+    /** 本局内的播报，一局结束或重置时还没开始的会被取消 */
+    public void speakForRound(String text) {
+        scheduler.executeForRound(() -> say(text));
     }
 
-    public int getRemainingTime() { return remaining; }
-    public void setRemainingTime(int time) { this.remaining = time; }
-
-    public void run() {
+    private static void say(String text) {
         try {
-            while (remaining > 0) {
-                Thread.sleep(1000);
-                remaining -= 1000;
-                if (remaining <= 10000 && remaining > 9000 && !debuffNotified) {
-                    debuffNotified = true;
-                    gameFrame.triggerRandomDebuff();
-                }
-            }
-            onFinish.run();
-        } catch (InterruptedException e) {}
+            String cmd = String.format(
+                    "Add-Type -AssemblyName System.Speech; " +
+                            "$synth = New-Object System.Speech.Synthesis.SpeechSynthesizer; " +
+                            "$synth.Rate = 2; $synth.Volume = 100; $synth.Speak('%s')",
+                    text.replace("'", "''")
+            );
+            new ProcessBuilder("powershell", "-Command", cmd)
+                    .redirectErrorStream(true).start();
+        } catch (Exception e) {
+            Toolkit.getDefaultToolkit().beep();
+        }
     }
 }
 
@@ -1010,19 +856,30 @@ class SkillStatsDialog extends JDialog {
         panel.add(new JLabel("唐小鸭")); panel.add(new JLabel("点名次数"));
         panel.add(new JLabel("使用次数")); panel.add(new JLabel("未使用次数"));
 
-        try (Connection conn = DriverManager.getConnection(
-                GameFrame.DB_URL, GameFrame.DB_USER, GameFrame.DB_PASSWORD);
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT * FROM skill_stats")) {
-            while (rs.next()) {
-                panel.add(new JLabel(rs.getString("duck_name")));
-                panel.add(new JLabel(String.valueOf(rs.getInt("called_count"))));
-                panel.add(new JLabel(String.valueOf(rs.getInt("used_count"))));
-                panel.add(new JLabel(String.valueOf(rs.getInt("not_used_count"))));
+        // 先写完队列再读，都在后台线程上做，读完再填表
+        new SwingWorker<List<GameStore.SkillStats>, Void>() {
+            @Override
+            protected List<GameStore.SkillStats> doInBackground() throws SQLException {
+                PersistenceQueue.shared().flush();
+                return GameStore.shared().loadSkillStats();
             }
-        } catch (SQLException e) {
-            panel.add(new JLabel("数据库连接失败"));
-        }
+
+            @Override
+            protected void done() {
+                try {
+                    for (GameStore.SkillStats stats : get()) {
+                        panel.add(new JLabel(stats.duckName));
+                        panel.add(new JLabel(String.valueOf(stats.calledCount)));
+                        panel.add(new JLabel(String.valueOf(stats.usedCount)));
+                        panel.add(new JLabel(String.valueOf(stats.notUsedCount)));
+                    }
+                } catch (InterruptedException | ExecutionException e) {
+                    panel.add(new JLabel("数据库连接失败"));
+                }
+                panel.revalidate();
+                panel.repaint();
+            }
+        }.execute();
         add(panel);
         setVisible(true);
     }
@@ -0,0 +1,112 @@
+package Game0_17;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 固定步长游戏循环
+ * 逻辑按固定 TPS 推进（累加器 + System.nanoTime），渲染按目标 FPS 进行并在两次逻辑帧之间插值，
+ * 这样游戏速度不再受绘制耗时和线程唤醒时机影响。
+ * 循环本身不占用专门的线程，而是作为 GameScheduler 上的一个固定频率任务，每次执行一帧。
+ */
+public class GameLoop {
+
+    /** 每帧最多追赶的时间，防止卡顿后逻辑帧雪崩 */
+    private static final long MAX_FRAME_NANOS = 250_000_000L;
+
+    public interface Callbacks {
+        /** 推进一个固定步长的逻辑帧 */
+        void tick();
+
+        /** 渲染一帧，alpha 为距上一逻辑帧的插值比例 [0, 1) */
+        void render(double alpha);
+    }
+
+    private final Callbacks callbacks;
+    private volatile int targetTps;
+    private volatile int targetFps;
+    private GameScheduler scheduler;
+    private ScheduledFuture<?> frameTask;
+    private long previous;
+    private long accumulator;
+
+    private final RateCounter tickCounter = new RateCounter();
+
+    public GameLoop(Callbacks callbacks, int targetTps, int targetFps) {
+        this.callbacks = callbacks;
+        setTargetTps(targetTps);
+        setTargetFps(targetFps);
+    }
+
+    public synchronized void start(GameScheduler scheduler) {
+        if (frameTask != null) return;
+        this.scheduler = scheduler;
+        previous = System.nanoTime();
+        accumulator = 0;
+        long frameNanos = 1_000_000_000L / targetFps;
+        // 固定频率任务不会并发执行，某一帧超时后面的帧只会顺延
+        frameTask = scheduler.scheduleAtFixedRate(this::frame, 0, frameNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public synchronized void stop() {
+        if (frameTask != null) {
+            frameTask.cancel(false);
+            frameTask = null;
+        }
+    }
+
+    /** 执行一帧：追上应有的逻辑帧，然后渲染 */
+    private void frame() {
+        long tickNanos = 1_000_000_000L / targetTps;
+
+        long now = System.nanoTime();
+        long elapsed = Math.min(now - previous, MAX_FRAME_NANOS);
+        previous = now;
+        accumulator += elapsed;
+
+        while (accumulator >= tickNanos) {
+            callbacks.tick();
+            tickCounter.increment();
+            accumulator -= tickNanos;
+        }
+
+        callbacks.render((double) accumulator / tickNanos);
+    }
+
+    public int getTargetTps() { return targetTps; }
+    public int getTargetFps() { return targetFps; }
+    public void setTargetTps(int tps) { this.targetTps = Math.max(1, tps); }
+    /** 修改目标 FPS，循环已在运行时会按新的频率重新调度 */
+    public synchronized void setTargetFps(int fps) {
+        this.targetFps = Math.max(1, fps);
+        if (frameTask != null) {
+            frameTask.cancel(false);
+            frameTask = null;
+            start(scheduler);
+        }
+    }
+
+    /** 最近一秒实际执行的逻辑帧数 */
+    public int getTicksPerSecond() { return tickCounter.getRate(); }
+
+    /**
+     * 每秒计数器，每满一秒滚动一次结果
+     */
+    static class RateCounter {
+        private long windowStart = System.nanoTime();
+        private int count;
+        private volatile int rate;
+
+        public synchronized void increment() {
+            count++;
+            long now = System.nanoTime();
+            if (now - windowStart >= 1_000_000_000L) {
+                rate = count;
+                count = 0;
+                windowStart = now;
+            }
+        }
+
+        public int getRate() { return rate; }
+    }
+}
@@ -0,0 +1,490 @@
+package Game0_17;
+
+import java.awt.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 抢红包画面渲染器
+ * 从 GameFrame.paint 中拆出，只依赖 Graphics 和 GameSimulation，
+ * 可以画到窗口，也可以画到任意离屏图像上（基准测试用）。
+ * 字体和颜色都是常量，HUD 文字是数值变化时才重建的 TextSprite，红包金额用数字字形贴图，
+ * 稳定状态下每帧不分配对象（用 AllocationMeter / RenderAllocationProbe 测量）。
+ * 所有图片经 SpriteCache 预先缩放成兼容格式，每帧不再做缩放绘制。
+ * renderRetained 在保留的帧图片上只重画脏矩形（DirtyRegion），脏区太大时整屏重画。
+ * 背景、debuff 遮罩和小鸭子预先合成为一个静态图层，每帧只拷贝一次，再画唐老鸭、红包和 HUD。
+ */
+public class GameRenderer {
+    private static final int WIDTH = GameSimulation.WIDTH;
+    private static final int HEIGHT = GameSimulation.HEIGHT;
+
+    private static final Font FONT_SMALL = new Font("宋体", Font.PLAIN, 12);
+    private static final Font FONT_HUD = new Font("宋体", Font.BOLD, 16);
+    private static final Font FONT_HUD_WARN = new Font("宋体", Font.BOLD, 18);
+    private static final Font FONT_BUTTON = new Font("宋体", Font.BOLD, 20);
+    private static final Font FONT_TITLE = new Font("宋体", Font.BOLD, 36);
+    private static final Color GAME_OVER_OVERLAY = new Color(255, 0, 0, 180);
+    private static final Color BUTTON_GOLD = new Color(255, 215, 0);
+
+    // HUD 布局：三列文字的 x 和四行的基线 y
+    private static final int TOTAL_X = 200, SESSION_X = 350, REMAINING_X = 480, STATS_X = 580;
+    private static final int ROW1_Y = 45, ROW2_Y = 65, ROW3_Y = 80, ROW4_Y = 95;
+    /** 红包脏矩形向外扩展的像素，金额数字可能超出红包边缘 */
+    private static final int PACKET_MARGIN = 8;
+
+    private static final Color[] DEBUFF_OVERLAYS = new Color[DebuffType.values().length];
+    static {
+        for (DebuffType d : DebuffType.values()) DEBUFF_OVERLAYS[d.ordinal()] = new Color(d.getOverlayArgb(), true);
+    }
+
+    private final GameSimulation simulation;
+    private final List<LittleDuck> littleDucks;
+    private Image bgImg, littleDuckImg;
+    private Image redPacketSmallImg, redPacketMiddleImg, redPacketBigImg;
+    private GameScheduler scheduler;
+    private AllocationMeter allocationMeter;
+
+    private final SpriteCache sprites = new SpriteCache();
+    private final ParticleSystem particles = new ParticleSystem();
+    private final DigitGlyphs amountDigits = new DigitGlyphs(FONT_SMALL, Color.YELLOW);
+    private final Map<String, TextSprite> duckNameLabels = new HashMap<>();
+    private final TextSprite totalLabel = new TextSprite(FONT_HUD, Color.BLACK);
+    private final TextSprite sessionLabel = new TextSprite(FONT_HUD, Color.BLACK);
+    private final TextSprite remainingLabel = new TextSprite(FONT_HUD, Color.BLACK);
+    private final TextSprite remainingWarnLabel = new TextSprite(FONT_HUD_WARN, Color.RED);
+    private final TextSprite pausedLabel = new TextSprite(FONT_HUD_WARN, Color.RED, "已暂停");
+    private final TextSprite skillLabel = new TextSprite(FONT_HUD, Color.BLACK);
+    private final TextSprite debuffLabel = new TextSprite(FONT_HUD, Color.RED);
+    private final TextSprite hintLabel = new TextSprite(FONT_SMALL, Color.GRAY, "按Z键：小鸭说话");
+    private final TextSprite rateLabel = new TextSprite(FONT_SMALL, Color.GRAY);
+    private final TextSprite schedulerLabel = new TextSprite(FONT_SMALL, Color.GRAY);
+    private final TextSprite allocationLabel = new TextSprite(FONT_SMALL, Color.GRAY);
+    private final TextSprite gameOverLabel = new TextSprite(FONT_TITLE, Color.WHITE, "游戏结束");
+    private final TextSprite resultLabel = new TextSprite(FONT_TITLE, Color.WHITE);
+    private final TextSprite retryLabel = new TextSprite(FONT_BUTTON, Color.RED, "再来一次");
+    private final TextSprite statusLabel = new TextSprite(FONT_HUD, Color.RED);
+    /** 启动状态提示（例如正在连接数据库），不为 null 时代替总金额显示 */
+    private volatile String statusMessage;
+    private boolean statusShown;
+
+    // 当前帧要画的状态，由 capture 读取
+    private GameSimulation.State gameState;
+    private SkillType activeSkill;
+    private DebuffType activeDebuff;
+    private double amountMultiplier;
+    private int sessionAmount, remainingMillis;
+    private boolean paused;
+    private Image currentDonaldImg;
+    private boolean hasDonald;
+    private int donaldX, donaldY, donaldW, donaldH;
+    private RedPacketStore.Snapshot packets;
+    private int packetCount;
+    private int[] packetY = new int[64];  // 插值后的红包 y
+
+    // 静态图层
+    private java.awt.image.BufferedImage staticImage;
+    private boolean staticValid;
+    private DebuffType staticOverlay;
+    private int staticDuckKey;
+    private int staticRebuilds;
+
+    // 增量绘制：保留的帧图片、脏区和上一帧的状态
+    private final DirtyRegion dirty = new DirtyRegion(WIDTH, HEIGHT);
+    private java.awt.image.BufferedImage frameImage;
+    private Graphics2D frameGraphics;
+    private boolean frameValid;
+    private long lastRepaintedPixels;
+    private GameSimulation.State lastState;
+    private SkillType lastSkill;
+    private DebuffType lastDebuff;
+    private double lastMultiplier;
+    private boolean lastPaused, lastWarn;
+    private Image lastDonaldImg;
+    private int lastDuckKey;
+    private boolean lastHasDonald;
+    private int lastDonaldX, lastDonaldY, lastDonaldW, lastDonaldH;
+    private int[] lastPackets = new int[4 * 64];  // 上一帧每个红包的 x, y, w, h
+    private int lastPacketCount;
+    private boolean lastParticles;
+    private int lastParticleX, lastParticleY, lastParticleW, lastParticleH;
+
+    public GameRenderer(GameSimulation simulation, List<LittleDuck> littleDucks) {
+        this.simulation = simulation;
+        this.littleDucks = littleDucks;
+    }
+
+    public void setImages(Image bgImg, Image littleDuckImg, Image small, Image middle, Image big) {
+        this.bgImg = bgImg;
+        this.littleDuckImg = littleDuckImg;
+        this.redPacketSmallImg = small;
+        this.redPacketMiddleImg = middle;
+        this.redPacketBigImg = big;
+        frameValid = false;
+        staticValid = false;
+        for (RedPacket.Size size : RedPacket.SIZES) {
+            int side = RedPacket.sizeValue(size);
+            sprites.preload(getRedPacketImage(size), side, side);
+        }
+        for (int i = 0; i < littleDucks.size(); i++) {
+            LittleDuck d = littleDucks.get(i);
+            sprites.preload(littleDuckImg, d.getWidth(), d.getHeight());
+        }
+    }
+
+    /** 预先把唐老鸭图片（含各套装扮）放进图集：普通 60x60，SIZE_UP 80x80 */
+    public void preloadDonald(Image... images) {
+        for (Image img : images) {
+            sprites.preload(img, 60, 60);
+            sprites.preload(img, 80, 80);
+        }
+    }
+
+    /** 设置后在 HUD 上显示调度器的线程数和任务队列深度 */
+    public void setScheduler(GameScheduler scheduler) { this.scheduler = scheduler; }
+
+    /** 设置后在 HUD 上显示每帧分配的字节数 */
+    public void setAllocationMeter(AllocationMeter meter) { this.allocationMeter = meter; }
+
+    private Image getRedPacketImage(RedPacket.Size size) {
+        switch (size) {
+            case SMALL: return redPacketSmallImg;
+            case MEDIUM: return redPacketMiddleImg;
+            case LARGE: return redPacketBigImg;
+            default: return redPacketSmallImg;
+        }
+    }
+
+    /**
+     * 绘制一整帧
+     * @param alpha 逻辑帧插值比例
+     * @param donaldImg 当前装扮下的唐老鸭图片
+     */
+    public void render(Graphics g, double alpha, Image donaldImg, int totalAmount, int tps, int fps) {
+        capture(alpha, donaldImg);
+        prepareHud(totalAmount, tps, fps);
+        drawScene(g, 0, 0, WIDTH, HEIGHT);
+    }
+
+    /**
+     * 增量绘制到保留的帧图片上并返回该图片。
+     * 只重画上一帧和这一帧之间变化的区域（移动的实体、变化的 HUD 文字），
+     * 场景整体变化（状态、debuff、技能、换装等）或脏区太大时整屏重画
+     */
+    public Image renderRetained(double alpha, Image donaldImg, int totalAmount, int tps, int fps) {
+        if (frameImage == null) {
+            frameImage = sprites.createImage(WIDTH, HEIGHT, Transparency.OPAQUE);
+            frameGraphics = frameImage.createGraphics();
+        }
+        dirty.reset();
+        capture(alpha, donaldImg);
+        prepareHud(totalAmount, tps, fps);
+
+        boolean warn = gameState == GameSimulation.State.PLAYING && remainingMillis < 11000;
+        if (!frameValid || gameState != lastState || activeDebuff != lastDebuff || activeSkill != lastSkill ||
+                paused != lastPaused || warn != lastWarn || donaldImg != lastDonaldImg ||
+                duckKey() != lastDuckKey || amountMultiplier != lastMultiplier) {
+            dirty.markFull();
+        }
+        lastState = gameState;
+        lastDebuff = activeDebuff;
+        lastSkill = activeSkill;
+        lastPaused = paused;
+        lastWarn = warn;
+        lastDonaldImg = donaldImg;
+        lastDuckKey = duckKey();
+        lastMultiplier = amountMultiplier;
+        frameValid = true;
+
+        markMovedEntities();
+        dirty.merge();
+
+        Graphics2D g = frameGraphics;
+        if (dirty.isFull()) {
+            drawScene(g, 0, 0, WIDTH, HEIGHT);
+        } else {
+            for (int i = 0; i < dirty.count(); i++) {
+                int x = dirty.x(i), y = dirty.y(i), w = dirty.width(i), h = dirty.height(i);
+                g.setClip(x, y, w, h);
+                drawScene(g, x, y, w, h);
+            }
+            g.setClip(null);
+        }
+        lastRepaintedPixels = dirty.area();
+        return frameImage;
+    }
+
+    /** 设置或清除（null）总金额位置上的状态提示，可从任意线程调用 */
+    public void setStatusMessage(String message) { this.statusMessage = message; }
+
+    /** 保留帧失效，下一次 renderRetained 整屏重画（例如换了背景图） */
+    public void invalidate() { frameValid = false; }
+
+    /** 抢红包和红包雨的粒子效果，发射请求可以从任意线程提交 */
+    public ParticleSystem getParticles() { return particles; }
+
+    /** 最近一帧的红包数量 */
+    public int getLastPacketCount() { return packetCount; }
+
+    /** 最近一次 renderRetained 重画的像素数 */
+    public long getLastRepaintedPixels() { return lastRepaintedPixels; }
+
+    /** 读取这一帧要画的状态，之后的绘制只用这些字段 */
+    private void capture(double alpha, Image donaldImg) {
+        gameState = simulation.getState();
+        activeSkill = simulation.getActiveSkill();
+        activeDebuff = simulation.getActiveDebuff();
+        amountMultiplier = simulation.getAmountMultiplier();
+        sessionAmount = simulation.getSessionAmount();
+        remainingMillis = simulation.getRemainingMillis();
+        paused = simulation.isPaused();
+        currentDonaldImg = donaldImg;
+        DonaldDuck donald = simulation.getDonald();
+        hasDonald = donald != null;
+        if (hasDonald) {
+            donaldX = donald.getRenderX(alpha);
+            donaldY = donald.getRenderY(alpha);
+            donaldW = donald.getWidth();
+            donaldH = donald.getHeight();
+        }
+        particles.update(System.nanoTime());
+        packets = simulation.getRedPacketStore().acquireSnapshot();
+        packetCount = packets.count();
+        if (packetY.length < packetCount) packetY = new int[Math.max(packetCount, packetY.length * 2)];
+        for (int i = 0; i < packetCount; i++) packetY[i] = packets.renderY(i, alpha);
+    }
+
+    /**
+     * 登记移动了的实体：唐老鸭和红包的旧位置和新位置。
+     * 红包每帧都在下落，下标又会因 swap-remove 变化，所以上一帧和这一帧的红包矩形全部登记
+     */
+    private void markMovedEntities() {
+        if (hasDonald != lastHasDonald || donaldX != lastDonaldX || donaldY != lastDonaldY ||
+                donaldW != lastDonaldW || donaldH != lastDonaldH) {
+            if (lastHasDonald) dirty.add(lastDonaldX, lastDonaldY, lastDonaldW, lastDonaldH);
+            if (hasDonald) dirty.add(donaldX, donaldY, donaldW, donaldH);
+        }
+        lastHasDonald = hasDonald;
+        lastDonaldX = donaldX; lastDonaldY = donaldY; lastDonaldW = donaldW; lastDonaldH = donaldH;
+
+        for (int i = 0; i < lastPacketCount; i++) {
+            int k = i * 4;
+            dirty.add(lastPackets[k], lastPackets[k + 1], lastPackets[k + 2], lastPackets[k + 3]);
+        }
+        if (lastPackets.length < packetCount * 4) lastPackets = new int[Math.max(packetCount * 4, lastPackets.length * 2)];
+        for (int i = 0; i < packetCount; i++) {
+            // 金额数字可能超出红包边缘，向外多留一点
+            int x = packets.x(i) - PACKET_MARGIN, y = packetY[i] - PACKET_MARGIN;
+            int w = packets.width(i) + 2 * PACKET_MARGIN, h = packets.height(i) + 2 * PACKET_MARGIN;
+            dirty.add(x, y, w, h);
+            int k = i * 4;
+            lastPackets[k] = x; lastPackets[k + 1] = y; lastPackets[k + 2] = w; lastPackets[k + 3] = h;
+        }
+        lastPacketCount = packetCount;
+
+        // 粒子数量多，整体用一个包围盒登记
+        if (lastParticles) dirty.add(lastParticleX, lastParticleY, lastParticleW, lastParticleH);
+        lastParticles = particles.computeBounds();
+        if (lastParticles) {
+            lastParticleX = particles.boundsX();
+            lastParticleY = particles.boundsY();
+            lastParticleW = particles.boundsWidth();
+            lastParticleH = particles.boundsHeight();
+            dirty.add(lastParticleX, lastParticleY, lastParticleW, lastParticleH);
+        }
+    }
+
+    /** 更新 HUD 文字，内容变化的文字登记旧区域和新区域 */
+    private void prepareHud(int totalAmount, int tps, int fps) {
+        String status = statusMessage;
+        if ((status != null) != statusShown) {
+            markLabel(statusLabel, TOTAL_X, ROW1_Y);
+            markLabel(totalLabel, TOTAL_X, ROW1_Y);
+            statusShown = status != null;
+        }
+        if (status != null && statusLabel.isStale(status.hashCode())) {
+            markLabel(statusLabel, TOTAL_X, ROW1_Y);
+            statusLabel.set(status.hashCode(), status);
+            markLabel(statusLabel, TOTAL_X, ROW1_Y);
+        }
+        if (totalLabel.isStale(totalAmount)) {
+            markLabel(totalLabel, TOTAL_X, ROW1_Y);
+            totalLabel.set(totalAmount, "总金额: " + totalAmount + "元");
+            markLabel(totalLabel, TOTAL_X, ROW1_Y);
+        }
+        long sessionKey = (long) sessionAmount << 16 | (long) (amountMultiplier * 100);
+        if (sessionLabel.isStale(sessionKey)) {
+            String sessionText = "本局: " + sessionAmount + "元";
+            if (amountMultiplier > 1.0) sessionText += " (x" + amountMultiplier + ")";
+            markLabel(sessionLabel, SESSION_X, ROW1_Y);
+            sessionLabel.set(sessionKey, sessionText);
+            markLabel(sessionLabel, SESSION_X, ROW1_Y);
+        }
+        if (gameState == GameSimulation.State.PLAYING) {
+            int tenths = remainingMillis / 100;
+            TextSprite label = remainingLabel();
+            if (label.isStale(tenths)) {
+                markLabel(label, REMAINING_X, ROW1_Y);
+                label.set(tenths, "剩余: " + tenths / 10 + "." + tenths % 10 + "秒");
+                markLabel(label, REMAINING_X, ROW1_Y);
+            }
+        }
+        if (activeSkill != null && skillLabel.isStale(activeSkill.ordinal())) {
+            skillLabel.set(activeSkill.ordinal(), "技能: " + activeSkill.getDescription());
+        }
+        if (activeDebuff != null && debuffLabel.isStale(activeDebuff.ordinal())) {
+            debuffLabel.set(activeDebuff.ordinal(), "⚠ " + activeDebuff.getDescription());
+        }
+        long rateKey = (long) tps << 32 | fps;
+        if (rateLabel.isStale(rateKey)) {
+            markLabel(rateLabel, STATS_X, ROW2_Y);
+            rateLabel.set(rateKey, "TPS: " + tps + "  FPS: " + fps);
+            markLabel(rateLabel, STATS_X, ROW2_Y);
+        }
+        if (scheduler != null) {
+            int threads = scheduler.getThreadCount(), queue = scheduler.getQueueDepth();
+            long key = (long) threads << 32 | queue;
+            if (schedulerLabel.isStale(key)) {
+                markLabel(schedulerLabel, STATS_X, ROW3_Y);
+                schedulerLabel.set(key, "线程: " + threads + "  队列: " + queue);
+                markLabel(schedulerLabel, STATS_X, ROW3_Y);
+            }
+        }
+        if (allocationMeter != null) {
+            long bytes = allocationMeter.getBytesPerFrame();
+            if (allocationLabel.isStale(bytes)) {
+                markLabel(allocationLabel, STATS_X, ROW4_Y);
+                allocationLabel.set(bytes, "分配: " + bytes + " B/帧");
+                markLabel(allocationLabel, STATS_X, ROW4_Y);
+            }
+        }
+        if (gameState == GameSimulation.State.GAME_OVER) {
+            long resultKey = (long) sessionAmount << 1 | (amountMultiplier > 1.0 ? 1 : 0);
+            if (resultLabel.isStale(resultKey)) {
+                String resultText = "本局获得: " + sessionAmount + "元";
+                if (amountMultiplier > 1.0) resultText += " (翻倍!)";
+                markLabel(resultLabel, WIDTH/2 - 140, HEIGHT/2 + 30);
+                resultLabel.set(resultKey, resultText);
+                markLabel(resultLabel, WIDTH/2 - 140, HEIGHT/2 + 30);
+            }
+        }
+    }
+
+    private TextSprite remainingLabel() {
+        return remainingMillis < 11000 ? remainingWarnLabel : remainingLabel;
+    }
+
+    private void markLabel(TextSprite label, int x, int baselineY) {
+        dirty.add(x, label.top(baselineY), label.width(), label.height());
+    }
+
+    /**
+     * 按图层顺序绘制场景中与裁剪矩形 (cx, cy, cw, ch) 相交的部分。
+     * 整屏绘制时裁剪矩形就是整个窗口
+     */
+    private void drawScene(Graphics g, int cx, int cy, int cw, int ch) {
+        // 背景、debuff 遮罩和小鸭子已经合成在一张图上
+        g.drawImage(staticLayer(), 0, 0, null);
+
+        if (hasDonald && intersects(donaldX, donaldY, donaldW, donaldH, cx, cy, cw, ch)) {
+            if (!sprites.draw(g, currentDonaldImg, donaldX, donaldY, donaldW, donaldH)) {
+                g.setColor(Color.YELLOW); g.fillOval(donaldX, donaldY, donaldW, donaldH);
+            }
+        }
+
+        for (int i = 0; i < packetCount; i++) {
+            int x = packets.x(i), y = packetY[i], w = packets.width(i), h = packets.height(i);
+            if (!intersects(x - PACKET_MARGIN, y - PACKET_MARGIN, w + 2 * PACKET_MARGIN, h + 2 * PACKET_MARGIN,
+                    cx, cy, cw, ch)) continue;
+            RedPacket.draw(g, sprites, getRedPacketImage(packets.size(i)), x, y, w, h, packets.amount(i), amountDigits);
+        }
+        if (particles.count() > 0) particles.draw(g);
+
+        if (statusShown) statusLabel.draw(g, TOTAL_X, ROW1_Y);
+        else totalLabel.draw(g, TOTAL_X, ROW1_Y);
+        sessionLabel.draw(g, SESSION_X, ROW1_Y);
+        if (gameState == GameSimulation.State.PLAYING) {
+            remainingLabel().draw(g, REMAINING_X, ROW1_Y);
+            if (paused) pausedLabel.draw(g, WIDTH/2 - 30, HEIGHT/2);
+        }
+        if (activeSkill != null) skillLabel.draw(g, TOTAL_X, ROW2_Y);
+        if (activeDebuff != null && gameState == GameSimulation.State.PLAYING) debuffLabel.draw(g, SESSION_X, ROW2_Y);
+
+        hintLabel.draw(g, STATS_X, ROW1_Y);
+        rateLabel.draw(g, STATS_X, ROW2_Y);
+        if (scheduler != null) schedulerLabel.draw(g, STATS_X, ROW3_Y);
+        if (allocationMeter != null) allocationLabel.draw(g, STATS_X, ROW4_Y);
+
+        if (gameState == GameSimulation.State.GAME_OVER) {
+            g.setColor(GAME_OVER_OVERLAY); g.fillRect(cx, cy, cw, ch);
+            gameOverLabel.draw(g, WIDTH/2 - 80, HEIGHT/2 - 20);
+            resultLabel.draw(g, WIDTH/2 - 140, HEIGHT/2 + 30);
+            g.setColor(BUTTON_GOLD);
+            g.fillRoundRect(WIDTH/2 - 100, HEIGHT/2 + 100, 200, 50, 15, 15);
+            retryLabel.draw(g, WIDTH/2 - 45, HEIGHT/2 + 132);
+        }
+    }
+
+    /**
+     * 静态图层：背景 + debuff 遮罩 + 小鸭子和名字，只在遮罩或小鸭子变化时重新合成
+     */
+    private Image staticLayer() {
+        DebuffType overlay = gameState == GameSimulation.State.PLAYING ? activeDebuff : null;
+        int duckKey = duckKey();
+        if (staticImage != null && staticValid && overlay == staticOverlay && duckKey == staticDuckKey) {
+            return staticImage;
+        }
+        if (staticImage == null) staticImage = sprites.createImage(WIDTH, HEIGHT, Transparency.OPAQUE);
+        Graphics2D g = staticImage.createGraphics();
+        if (!sprites.draw(g, bgImg, 0, 0, WIDTH, HEIGHT)) {
+            g.setColor(Color.WHITE); g.fillRect(0, 0, WIDTH, HEIGHT);
+        }
+        if (overlay != null) {
+            g.setColor(DEBUFF_OVERLAYS[overlay.ordinal()]);
+            g.fillRect(0, 0, WIDTH, HEIGHT);
+        }
+        for (int i = 0; i < littleDucks.size(); i++) {
+            LittleDuck duck = littleDucks.get(i);
+            if (!sprites.draw(g, littleDuckImg, duck.getX(), duck.getY(), duck.getWidth(), duck.getHeight())) {
+                g.setColor(Color.ORANGE); g.fillOval(duck.getX(), duck.getY(), duck.getWidth(), duck.getHeight());
+            }
+            duckNameLabel(duck.getName()).draw(g, duck.getX(), duck.getY() + duck.getHeight() + 15);
+        }
+        g.dispose();
+        staticOverlay = overlay;
+        staticDuckKey = duckKey;
+        staticValid = true;
+        staticRebuilds++;
+        return staticImage;
+    }
+
+    /** 小鸭子列表的指纹，数量、位置或名字变化时改变 */
+    private int duckKey() {
+        int h = littleDucks.size();
+        for (int i = 0; i < littleDucks.size(); i++) {
+            LittleDuck d = littleDucks.get(i);
+            h = h * 31 + d.getX();
+            h = h * 31 + d.getY();
+            h = h * 31 + d.getWidth();
+            h = h * 31 + d.getHeight();
+            h = h * 31 + d.getName().hashCode();
+        }
+        return h;
+    }
+
+    /** 静态图层重新合成的次数 */
+    public int getStaticLayerRebuilds() { return staticRebuilds; }
+
+    private static boolean intersects(int x, int y, int w, int h, int cx, int cy, int cw, int ch) {
+        return x < cx + cw && x + w > cx && y < cy + ch && y + h > cy;
+    }
+
+    private TextSprite duckNameLabel(String name) {
+        TextSprite label = duckNameLabels.get(name);
+        if (label == null) {
+            label = new TextSprite(FONT_SMALL, Color.BLACK, name);
+            duckNameLabels.put(name, label);
+        }
+        return label;
+    }
+}
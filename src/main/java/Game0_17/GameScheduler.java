@@ -0,0 +1,121 @@
+package Game0_17;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 统一的游戏调度器
+ * 游戏循环、语音播报等后台任务都跑在这一组固定数量、带名字的线程上，
+ * 不再为每个功能、每一局单独开线程。属于某一局的任务登记为“本局任务”，
+ * 结束或重置时统一取消。
+ */
+public class GameScheduler {
+
+    private static final int THREADS = 2;
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final Set<ScheduledFuture<?>> roundTasks = ConcurrentHashMap.newKeySet();
+
+    public GameScheduler() {
+        AtomicInteger index = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "duck-game-" + index.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        executor = new ScheduledThreadPoolExecutor(THREADS, factory);
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /** 立即执行一个后台任务 */
+    public void execute(Runnable task) {
+        executor.execute(guard(task));
+    }
+
+    public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        return executor.schedule(guard(task), delay, unit);
+    }
+
+    /**
+     * 按固定频率执行。任务抛出的异常会被记录下来，不会让周期任务停掉
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        return executor.scheduleAtFixedRate(guard(task), initialDelay, period, unit);
+    }
+
+    /** 执行一个属于本局的任务，调用 {@link #cancelRoundTasks()} 时如果还没开始就会被取消 */
+    public void executeForRound(Runnable task) {
+        scheduleForRound(task, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /** 延迟执行一个属于本局的任务 */
+    public ScheduledFuture<?> scheduleForRound(Runnable task, long delay, TimeUnit unit) {
+        // 延迟很短时任务可能在 schedule() 返回之前就跑完了，这时还拿不到自己的 future，
+        // 只记下已完成，由登记的一方负责移除
+        AtomicReference<ScheduledFuture<?>> self = new AtomicReference<>();
+        AtomicBoolean finished = new AtomicBoolean();
+        Runnable wrapped = () -> {
+            try {
+                task.run();
+            } finally {
+                finished.set(true);
+                ScheduledFuture<?> f = self.get();
+                if (f != null) roundTasks.remove(f);
+            }
+        };
+        ScheduledFuture<?> future;
+        synchronized (roundTasks) {
+            future = executor.schedule(guard(wrapped), delay, unit);
+            roundTasks.add(future);
+            self.set(future);
+        }
+        if (finished.get()) roundTasks.remove(future);
+        return future;
+    }
+
+    /** 取消所有本局任务，在结束一局和回到等待状态时调用 */
+    public void cancelRoundTasks() {
+        synchronized (roundTasks) {
+            for (ScheduledFuture<?> f : roundTasks) f.cancel(false);
+            roundTasks.clear();
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static Runnable guard(Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                System.err.println("调度任务异常: " + t);
+                t.printStackTrace();
+            }
+        };
+    }
+
+    // ======== 监控指标 ========
+
+    /** 当前线程数 */
+    public int getThreadCount() { return executor.getPoolSize(); }
+
+    /** 正在执行任务的线程数 */
+    public int getActiveCount() { return executor.getActiveCount(); }
+
+    /** 等待中的任务数（包括尚未到期的定时任务） */
+    public int getQueueDepth() { return executor.getQueue().size(); }
+
+    /** 尚未执行的本局任务数 */
+    public int getPendingRoundTasks() { return roundTasks.size(); }
+
+    public long getCompletedTaskCount() { return executor.getCompletedTaskCount(); }
+}
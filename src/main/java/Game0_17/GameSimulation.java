@@ -0,0 +1,376 @@
+package Game0_17;
+
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongSupplier;
+
+/**
+ * 抢红包游戏规则核心 - 不依赖 AWT，可无界面运行
+ * 技能、debuff、八门齐开倍率、红包生成节奏和倒计时都在这里按逻辑帧推进，
+ * 所有随机数来自同一个种子，每局开始时再从中取一个本局种子重新播种，相同的种子和输入脚本总会得到相同的结果。
+ * 倒计时由 GameTimer 按截止时间计算，默认使用逻辑帧时钟；界面传入 System.nanoTime 按真实时间计时。
+ * 时钟每个逻辑帧开头只读一次（精确到微秒），连同本局种子和生效的输入一起交给 SessionRecorder，就能原样回放。
+ * GameFrame 只负责输入、渲染、语音和数据库。
+ */
+public class GameSimulation {
+    public static final int WIDTH = 700;
+    public static final int HEIGHT = 700;
+    public static final int GAME_TIME = 30000;
+    public static final int DEBUFF_TIME = 10000;
+    public static final int EIGHT_GATES_TIME = 5000;
+    public static final int TICKS_PER_SECOND = Integer.getInteger("duck.tps", 25);
+    /** 红包风暴模式的同屏红包数量，0 表示关闭（例如 -Dduck.storm=100000） */
+    public static final int STORM_PACKETS = Integer.getInteger("duck.storm", 0);
+
+    public enum State { WAITING, PLAYING, GAME_OVER }
+
+    /** 规则事件回调，在游戏循环线程上调用 */
+    public interface Listener {
+        void onDebuffTriggered(DebuffType debuff);
+        void onRoundEnded(int finalAmount, boolean doubled);
+        /** 抢到一个红包，(x, y) 为红包中心 */
+        default void onPacketCaught(int x, int y, int amount) {}
+        /** 代码统计奖励的红包雨 */
+        default void onRedPacketRain(int count) {}
+    }
+
+    private final long tickNanos;
+    private final Random random;
+    private final Random packetRandom;
+    private final RedPacketStore redPacketStore;
+    private final ConcurrentLinkedQueue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    private Listener listener;
+    private SessionRecorder recorder;
+    private final LongSupplier clock;
+
+    private volatile State state = State.WAITING;
+    private volatile DonaldDuck donald;
+    private volatile SkillType activeSkill = null;
+    private volatile DebuffType activeDebuff = null;
+    private volatile double amountMultiplier = 1.0;
+    private volatile int sessionAmount = 0;
+    private volatile boolean paused = false;
+    private final GameTimer timer;
+    private long nextSpawnNanos = 0;
+    private long tickCount = 0;
+    private long tickClockNanos = 0;
+    /** 本逻辑帧计时器看到的时间，帧开头取一次 */
+    private volatile long timerNanos = 0;
+
+    /** 使用逻辑帧时钟，结果只取决于种子和输入 */
+    public GameSimulation(long seed, int ticksPerSecond) {
+        this(seed, ticksPerSecond, null);
+    }
+
+    /** @param clock 倒计时使用的纳秒时钟，为 null 时使用逻辑帧时钟 */
+    public GameSimulation(long seed, int ticksPerSecond, LongSupplier clock) {
+        this.tickNanos = 1_000_000_000L / ticksPerSecond;
+        this.random = new Random(seed);
+        this.packetRandom = new Random(seed * 31 + 17);
+        this.redPacketStore = new RedPacketStore(packetRandom);
+        this.donald = newDonald();
+        this.clock = clock;
+        this.timer = new GameTimer(() -> timerNanos);
+        timer.addMilestone(DEBUFF_TIME, this::triggerRandomDebuff);
+        timer.addMilestone(0, this::endRound);
+    }
+
+    public void setListener(Listener listener) { this.listener = listener; }
+    /** 录制之后生效的种子和输入，在游戏循环启动前设置 */
+    public void setRecorder(SessionRecorder recorder) { this.recorder = recorder; }
+
+    private static DonaldDuck newDonald() {
+        return new DonaldDuck(WIDTH / 2 - 30, HEIGHT - 150, 60, 60, 5);
+    }
+
+    // ======== 任意线程提交的请求，下一个逻辑帧生效 ========
+
+    /** 开始新的一局，skill 为 null 表示不使用技能 */
+    public void requestStart(SkillType skill) {
+        commands.offer(() -> startRound(skill, random.nextLong()));
+    }
+
+    /** 用指定的本局种子开始，回放时使用 */
+    void requestStart(SkillType skill, long roundSeed) {
+        commands.offer(() -> startRound(skill, roundSeed));
+    }
+
+    /** 回到等待状态 */
+    public void requestReset() {
+        commands.offer(() -> {
+            if (recorder != null) recorder.event(SessionRecorder.RESET);
+            resetToWaiting();
+        });
+    }
+
+    /** 暂停本局（例如打开模态的功能菜单时），倒计时和红包都停住 */
+    public void requestPause() {
+        commands.offer(() -> {
+            if (recorder != null) recorder.event(SessionRecorder.PAUSE);
+            paused = true;
+            timer.pause();
+        });
+    }
+
+    public void requestResume() {
+        commands.offer(() -> {
+            if (recorder != null) recorder.event(SessionRecorder.RESUME);
+            paused = false;
+            timer.resume();
+        });
+    }
+
+    /** 键盘输入，debuff 对按键的影响在逻辑帧中处理 */
+    public void submitKey(int keyCode, boolean pressed) {
+        commands.offer(() -> {
+            if (recorder != null) recorder.key(keyCode, pressed);
+            applyKey(keyCode, pressed);
+        });
+    }
+
+    /** 红包雨：从顶部落下 count 个红包 */
+    public void requestRain(int count) {
+        commands.offer(() -> {
+            if (recorder != null) recorder.rain(count);
+            redPacketStore.requestSpawn(count, 0, 3, 4);
+            if (listener != null) listener.onRedPacketRain(count);
+        });
+    }
+
+    /**
+     * 随机点名一只小鸭子，返回下标。
+     * 只在 WAITING 状态下调用，此时逻辑帧不会使用规则随机数，开局时还会重新播种
+     */
+    public int rollDuck(int duckCount) {
+        return random.nextInt(duckCount);
+    }
+
+    // ======== 逻辑帧 ========
+
+    /** 推进一个逻辑帧，只在游戏循环线程调用 */
+    public void tick() {
+        timerNanos = clock != null ? clock.getAsLong() / 1000 * 1000 : tickClockNanos;
+        Runnable cmd;
+        while ((cmd = commands.poll()) != null) cmd.run();
+        redPacketStore.drainCommands();
+        tickClockNanos += tickNanos;
+        if (state == State.PLAYING && !paused) updateRound();
+        redPacketStore.publish();
+        tickCount++;
+        if (recorder != null) recorder.tick(timerNanos / 1000);
+    }
+
+    private void startRound(SkillType skill, long roundSeed) {
+        if (state != State.WAITING) return;
+        // 之前排队的红包命令先用旧的随机数执行完，本局只取决于本局种子和之后的输入
+        redPacketStore.drainCommands();
+        random.setSeed(roundSeed);
+        packetRandom.setSeed(roundSeed * 31 + 17);
+        if (recorder != null) recorder.roundStart(roundSeed, skill, paused);
+        activeSkill = skill;
+        if (skill != null) applySkill(skill);
+        activeDebuff = null;
+        amountMultiplier = 1.0;
+        sessionAmount = 0;
+        timer.start(GAME_TIME);
+        if (paused) timer.pause();
+        nextSpawnNanos = nextSpawnDelay();
+        redPacketStore.requestClear();
+        redPacketStore.requestSpawn(8, 200, 2, 3);
+        if (STORM_PACKETS > 0) redPacketStore.requestStorm(STORM_PACKETS);
+        state = State.PLAYING;
+    }
+
+    private void applySkill(SkillType skill) {
+        switch (skill) {
+            case SPEED_UP: donald.setSpeed(donald.getSpeed() + 3); break;
+            case SIZE_UP: donald.setWidth(80); donald.setHeight(80); break;
+            case AMOUNT_UP: break;
+        }
+    }
+
+    private void applyKey(int keyCode, boolean pressed) {
+        if (state != State.PLAYING) return;
+        int actualKey = keyCode;
+        if (activeDebuff == DebuffType.REVERSE_WORLD) {
+            if (keyCode == KeyEvent.VK_LEFT) actualKey = KeyEvent.VK_RIGHT;
+            else if (keyCode == KeyEvent.VK_RIGHT) actualKey = KeyEvent.VK_LEFT;
+        } else if (activeDebuff == DebuffType.NO_FLY) {
+            if (keyCode == KeyEvent.VK_UP || keyCode == KeyEvent.VK_DOWN) return;
+        }
+        if (pressed) donald.handleKeyPress(actualKey);
+        else donald.handleKeyRelease(actualKey);
+    }
+
+    private void updateRound() {
+        donald.savePreviousPosition();
+        if (activeDebuff == DebuffType.NO_FLY) donald.applyGravity(HEIGHT);
+        donald.updatePosition(WIDTH, HEIGHT);
+
+        nextSpawnNanos -= tickNanos;
+        if (nextSpawnNanos <= 0) {
+            redPacketStore.requestSpawn(1, 0, 2, 3);
+            nextSpawnNanos += nextSpawnDelay();
+        }
+
+        redPacketStore.advance(HEIGHT);
+        RedPacketPool pool = redPacketStore.pool();
+        catchPackets(pool, donald);
+
+        // 剩余 10 秒触发 debuff、归零结束本局，都是计时器的里程碑事件
+        timer.update();
+    }
+
+    /** 红包生成间隔 800~1800 毫秒 */
+    private long nextSpawnDelay() {
+        return (800 + random.nextInt(1000)) * 1_000_000L;
+    }
+
+    /**
+     * 收走落在唐老鸭矩形内的红包并计入本局金额。
+     * 只有一个捕手，每帧重建空间哈希比直接遍历还慢（见 src/jmh 下的 SpatialHashBenchmark），所以直接遍历；
+     * 从后往前遍历，swap-remove 换过来的红包都已经检查过
+     */
+    private void catchPackets(RedPacketPool pool, DonaldDuck catcher) {
+        for (int i = pool.count() - 1; i >= 0; i--) {
+            if (!catcher.collidesWith(pool.x(i), pool.y(i), pool.width(i), pool.height(i))) continue;
+            int amt = pool.amount(i);
+            if (activeSkill == SkillType.AMOUNT_UP) amt = (int)(amt * 1.5);
+            sessionAmount += amt;
+            if (listener != null) listener.onPacketCaught(pool.x(i) + pool.width(i) / 2, pool.y(i) + pool.height(i) / 2, amt);
+            pool.remove(i);
+        }
+    }
+
+    private void triggerRandomDebuff() {
+        DebuffType[] debuffs = DebuffType.values();
+        activeDebuff = debuffs[random.nextInt(debuffs.length)];
+        if (activeDebuff == DebuffType.EIGHT_GATES) {
+            amountMultiplier = 2.0;
+            timer.setRemainingMillis(EIGHT_GATES_TIME);
+        }
+        if (listener != null) listener.onDebuffTriggered(activeDebuff);
+    }
+
+    private void endRound() {
+        timer.stop();
+        state = State.GAME_OVER;
+        boolean doubled = amountMultiplier > 1.0;
+        sessionAmount = (int)(sessionAmount * amountMultiplier);
+        donald.setSpeed(5);
+        donald.setWidth(60);
+        donald.setHeight(60);
+        activeSkill = null;
+        activeDebuff = null;
+        if (listener != null) listener.onRoundEnded(sessionAmount, doubled);
+    }
+
+    private void resetToWaiting() {
+        state = State.WAITING;
+        sessionAmount = 0;
+        redPacketStore.requestClear();
+        donald = newDonald();
+        activeDebuff = null;
+        amountMultiplier = 1.0;
+        timer.stop();
+        timer.setRemainingMillis(0);
+    }
+
+    // ======== 状态读取（渲染线程可读） ========
+
+    public State getState() { return state; }
+    public DonaldDuck getDonald() { return donald; }
+    public SkillType getActiveSkill() { return activeSkill; }
+    public DebuffType getActiveDebuff() { return activeDebuff; }
+    public double getAmountMultiplier() { return amountMultiplier; }
+    public int getSessionAmount() { return sessionAmount; }
+    public int getRemainingMillis() { return timer.getRemainingMillis(); }
+    public boolean isPaused() { return paused; }
+    /** 调整本局剩余时间，只在游戏循环线程调用（基准测试用它让一局永不结束） */
+    void setRemainingMillis(int millis) { timer.setRemainingMillis(millis); }
+    public long getTickCount() { return tickCount; }
+    public RedPacketStore getRedPacketStore() { return redPacketStore; }
+
+    // ======== 无界面运行 ========
+
+    /**
+     * 输入脚本：在指定逻辑帧按下或松开某个键
+     */
+    public static class InputScript {
+        private final List<long[]> events = new ArrayList<>();
+
+        /** 事件必须按 tick 递增的顺序添加 */
+        public InputScript add(long tick, int keyCode, boolean pressed) {
+            events.add(new long[]{tick, keyCode, pressed ? 1 : 0});
+            return this;
+        }
+
+        /** 生成一个随机左右移动的脚本，用于压测 */
+        public static InputScript randomWalk(long seed, long ticks) {
+            Random r = new Random(seed);
+            InputScript script = new InputScript();
+            int held = -1;
+            for (long t = 0; t < ticks; t += 5 + r.nextInt(20)) {
+                if (held >= 0) script.add(t, held, false);
+                held = r.nextBoolean() ? KeyEvent.VK_LEFT : KeyEvent.VK_RIGHT;
+                script.add(t, held, true);
+            }
+            return script;
+        }
+    }
+
+    /**
+     * 按输入脚本无界面地跑完一局，返回本局最终金额
+     */
+    public int runRound(SkillType skill, InputScript script) {
+        requestReset();
+        tick();
+        requestStart(skill);
+        tick();
+        long startTick = tickCount;
+        int next = 0;
+        while (state == State.PLAYING) {
+            long t = tickCount - startTick;
+            while (next < script.events.size() && script.events.get(next)[0] <= t) {
+                long[] e = script.events.get(next++);
+                applyKey((int) e[1], e[2] == 1);
+            }
+            tick();
+        }
+        return sessionAmount;
+    }
+
+    /**
+     * 压测入口：java Game0_17.GameSimulation [局数] [种子]
+     */
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42L;
+
+        GameSimulation sim = new GameSimulation(seed, TICKS_PER_SECOND);
+        SkillType[] skills = {null, SkillType.SPEED_UP, SkillType.SIZE_UP, SkillType.AMOUNT_UP};
+        long[] earned = new long[skills.length];
+        int[] played = new int[skills.length];
+
+        long start = System.nanoTime();
+        long startTicks = sim.getTickCount();
+        for (int i = 0; i < rounds; i++) {
+            int s = i % skills.length;
+            InputScript script = InputScript.randomWalk(seed + i, GAME_TIME / 1000 * TICKS_PER_SECOND);
+            earned[s] += sim.runRound(skills[s], script);
+            played[s]++;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long ticks = sim.getTickCount() - startTicks;
+
+        System.out.printf("%d 局, %d 逻辑帧, 耗时 %.2f 秒 (%.0f 局/秒, %.0f 帧/秒)%n",
+                rounds, ticks, seconds, rounds / seconds, ticks / seconds);
+        for (int s = 0; s < skills.length; s++) {
+            String name = skills[s] == null ? "不使用技能" : skills[s].getDescription();
+            System.out.printf("%s: 平均每局 %.1f 元%n", name, (double) earned[s] / Math.max(1, played[s]));
+        }
+    }
+}
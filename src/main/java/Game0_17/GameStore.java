@@ -0,0 +1,182 @@
+package Game0_17;
+
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 游戏数据存储 - 总金额、技能统计（skill_stats）、套装购买（suit_purchases）和点名历史（call_history）
+ * 游戏里所有读写数据都经过这个接口，不再直接拼 JDBC：
+ * - {@link JdbcGameStore}：原来的 MySQL 数据库（默认）
+ * - {@link FileGameStore}：本地目录里的追加日志 + 快照，毫秒级启动，进程崩溃不丢已提交的数据，
+ *   不需要 MySQL，展台和 CI 可以离线跑完整的游戏
+ * 用 -Dduck.store=mysql|file 选择，文件存储的目录由 -Dduck.store.dir 指定。
+ * 错误沿用 JDBC 的 SQLException，文件实现把 IO 错误包装进去，调用方的处理方式不变。
+ */
+public interface GameStore {
+
+    /** 存储类型：mysql 或 file */
+    String TYPE = System.getProperty("duck.store", "mysql");
+    /** 文件存储的目录 */
+    String FILE_DIR = System.getProperty("duck.store.dir", "duck-data");
+
+    /** 三只小鸭子和它们的技能描述，建表时插入默认行 */
+    String[] DUCK_NAMES = {"唐小哥", "唐老二", "唐小弟"};
+    String[] SKILL_NAMES = {"速度+3", "体积变大", "金额x1.5"};
+
+    /** 按 -Dduck.store 选择的全局存储，第一次使用时创建，open() 之前不访问数据库或磁盘 */
+    static GameStore shared() {
+        return Shared.INSTANCE;
+    }
+
+    /** 建表或读取数据文件，可以重复调用，只有第一次成功的调用生效 */
+    void open() throws SQLException;
+
+    /** 读取总金额 */
+    int loadBalance() throws SQLException;
+
+    /** 读取所有小鸭子的技能统计，按名字排序 */
+    List<SkillStats> loadSkillStats() throws SQLException;
+
+    /** 把所有点名和使用次数清零 */
+    void resetSkillStats() throws SQLException;
+
+    /** 读取已购买的套装 */
+    Set<String> loadPurchasedSuits() throws SQLException;
+
+    /** 某个套装是否已购买 */
+    boolean isSuitPurchased(String suitName) throws SQLException;
+
+    /**
+     * 时间窗口内的点名记录，按时间从新到旧，每次最多 limit 条。
+     * 用 keyset 分页：after 传上一页的最后一条（第一页传 null），不用 OFFSET，翻到多深都只读一页的行。
+     * duckName 为 null 表示所有小鸭子
+     */
+    List<CallRecord> loadCallHistory(String duckName, long sinceMillis, CallRecord after, int limit) throws SQLException;
+
+    /** 时间窗口内点过名的每只小鸭子的点名次数、使用技能次数和获得的金额，按名字排序 */
+    List<CallSummary> summarizeCalls(long sinceMillis) throws SQLException;
+
+    /** 在一个事务里写入一批变更，要么全部生效要么都不生效 */
+    void write(Changes changes) throws SQLException;
+
+    /**
+     * 花钱：总金额够 cost 时扣掉，并在同一个事务里写入买到的东西（purchase，可以为空），返回 true；
+     * 不够时什么都不写，返回 false。检查和扣除是一条条件更新，两个窗口同时买也不会扣成负数或互相覆盖
+     */
+    boolean spend(int cost, Changes purchase) throws SQLException;
+
+    /** 关闭存储，退出前调用 */
+    void close();
+
+    /** F3 叠加层上的一行状态 */
+    String describe();
+
+    /** 一只小鸭子的技能统计 */
+    final class SkillStats {
+        public final String duckName;
+        public final String skillName;
+        public final int calledCount;
+        public final int usedCount;
+        public final int notUsedCount;
+
+        public SkillStats(String duckName, String skillName, int calledCount, int usedCount, int notUsedCount) {
+            this.duckName = duckName;
+            this.skillName = skillName;
+            this.calledCount = calledCount;
+            this.usedCount = usedCount;
+            this.notUsedCount = notUsedCount;
+        }
+    }
+
+    /** 一条点名记录，对应 call_history 的一行；还没写入的记录 id 为 0 */
+    final class CallRecord {
+        public final long id;
+        public final String duckName;
+        public final boolean wasUsed;
+        public final int sessionAmount;
+        public final long callTimeMillis;
+
+        public CallRecord(String duckName, boolean wasUsed, int sessionAmount, long callTimeMillis) {
+            this(0, duckName, wasUsed, sessionAmount, callTimeMillis);
+        }
+
+        public CallRecord(long id, String duckName, boolean wasUsed, int sessionAmount, long callTimeMillis) {
+            this.id = id;
+            this.duckName = duckName;
+            this.wasUsed = wasUsed;
+            this.sessionAmount = sessionAmount;
+            this.callTimeMillis = callTimeMillis;
+        }
+    }
+
+    /** 一只小鸭子在某个时间窗口内的点名汇总 */
+    final class CallSummary {
+        public final String duckName;
+        public final int calls;
+        public final int usedCount;
+        public final long totalAmount;
+
+        public CallSummary(String duckName, int calls, int usedCount, long totalAmount) {
+            this.duckName = duckName;
+            this.calls = calls;
+            this.usedCount = usedCount;
+            this.totalAmount = totalAmount;
+        }
+    }
+
+    /**
+     * 一批要写入的变更，由 PersistenceQueue 合并后交给 {@link #write}
+     * balanceDelta 是总金额的增减，按相对值写入，不会覆盖别的进程同时做的修改；
+     * skillDeltas 是每只小鸭子 {点名, 使用, 未使用} 的增量
+     */
+    final class Changes {
+        public final int balanceDelta;
+        public final Map<String, int[]> skillDeltas;
+        public final Set<String> suits;
+        public final List<CallRecord> calls;
+
+        public Changes(int balanceDelta, Map<String, int[]> skillDeltas, Set<String> suits, List<CallRecord> calls) {
+            this.balanceDelta = balanceDelta;
+            this.skillDeltas = Collections.unmodifiableMap(skillDeltas);
+            this.suits = Collections.unmodifiableSet(suits);
+            this.calls = Collections.unmodifiableList(calls);
+        }
+
+        /** 什么都不写 */
+        public static final Changes NONE = new Changes(0, Collections.emptyMap(), Collections.emptySet(),
+                Collections.emptyList());
+
+        /** 买一套套装 */
+        public static Changes suitPurchase(String suitName) {
+            return new Changes(0, Collections.emptyMap(), Collections.singleton(suitName), Collections.emptyList());
+        }
+
+        /** 点名后花钱使用技能，used_count 加一 */
+        public static Changes skillPurchase(String duckName) {
+            return new Changes(0, Collections.singletonMap(duckName, new int[]{0, 1, 0}),
+                    Collections.emptySet(), Collections.emptyList());
+        }
+
+        public boolean isEmpty() {
+            return balanceDelta == 0 && skillDeltas.isEmpty() && suits.isEmpty() && calls.isEmpty();
+        }
+
+        /** 合并后要写入的行数 */
+        public int rowCount() {
+            return (balanceDelta != 0 ? 1 : 0) + skillDeltas.size() + suits.size() + calls.size();
+        }
+    }
+
+    /** 延迟创建全局存储 */
+    final class Shared {
+        static final GameStore INSTANCE = "file".equalsIgnoreCase(TYPE)
+                ? new FileGameStore(Paths.get(FILE_DIR))
+                : new JdbcGameStore(ConnectionPool.shared());
+
+        private Shared() {}
+    }
+}
@@ -0,0 +1,122 @@
+package Game0_17;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * 倒计时器 - 基于截止时间，不占用线程
+ * 开始时记下截止时刻，剩余时间 = 截止时刻 - 当前时刻，不会因为 sleep 超时而越走越慢，精确到毫秒。
+ * 支持暂停/继续；里程碑（例如剩余 10 秒触发 debuff、剩余 0 秒结束）由 {@link #update()} 作为事件回调，
+ * 调用方不用自己轮询剩余时间。
+ * 时钟可替换：界面用 System.nanoTime，无界面运行用逻辑帧时钟以保证结果可复现。
+ */
+public class GameTimer {
+
+    private static class Milestone {
+        final long atNanos;     // 剩余时间降到这个值时触发
+        final Runnable action;
+        boolean fired;
+
+        Milestone(long atNanos, Runnable action) {
+            this.atNanos = atNanos;
+            this.action = action;
+        }
+    }
+
+    private final LongSupplier clock;
+    private final List<Milestone> milestones = new ArrayList<>();  // 按 atNanos 从大到小排列
+
+    private boolean running;
+    private boolean paused;
+    private long deadline;          // 运行中：截止时刻
+    private long frozenRemaining;   // 暂停或停止时：冻结的剩余时间
+
+    public GameTimer() {
+        this(System::nanoTime);
+    }
+
+    /** @param clock 单调递增的纳秒时钟 */
+    public GameTimer(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * 注册里程碑，每次 start 之后剩余时间首次降到该值时回调一次。
+     * 里程碑长期有效，一般在构造后注册一次即可
+     */
+    public synchronized void addMilestone(long remainingMillis, Runnable action) {
+        Milestone m = new Milestone(remainingMillis * 1_000_000L, action);
+        int i = 0;
+        while (i < milestones.size() && milestones.get(i).atNanos >= m.atNanos) i++;
+        milestones.add(i, m);
+    }
+
+    public synchronized void start(long durationMillis) {
+        for (Milestone m : milestones) m.fired = false;
+        running = true;
+        paused = false;
+        deadline = clock.getAsLong() + durationMillis * 1_000_000L;
+    }
+
+    /** 停止计时，剩余时间冻结在当前值，之后不再触发里程碑 */
+    public synchronized void stop() {
+        if (!running) return;
+        frozenRemaining = getRemainingNanos();
+        running = false;
+        paused = false;
+    }
+
+    public synchronized void pause() {
+        if (!running || paused) return;
+        frozenRemaining = Math.max(0, deadline - clock.getAsLong());
+        paused = true;
+    }
+
+    public synchronized void resume() {
+        if (!running || !paused) return;
+        deadline = clock.getAsLong() + frozenRemaining;
+        paused = false;
+    }
+
+    /**
+     * 直接修改剩余时间（例如八门齐开改为 5 秒）。
+     * 已触发的里程碑不会重复触发
+     */
+    public synchronized void setRemainingMillis(long millis) {
+        long nanos = millis * 1_000_000L;
+        if (!running || paused) frozenRemaining = nanos;
+        else deadline = clock.getAsLong() + nanos;
+    }
+
+    /**
+     * 触发所有已到期的里程碑，剩余时间归零后计时器自动停止。
+     * 由游戏循环每个逻辑帧调用一次，回调在调用线程上执行，回调里可以再调用本类的方法
+     */
+    public synchronized void update() {
+        if (!running || paused) return;
+        for (int i = 0; i < milestones.size() && running; i++) {
+            Milestone m = milestones.get(i);
+            if (!m.fired && getRemainingNanos() <= m.atNanos) {
+                m.fired = true;
+                m.action.run();
+            }
+        }
+        if (running && getRemainingNanos() == 0) {
+            frozenRemaining = 0;
+            running = false;
+        }
+    }
+
+    public synchronized long getRemainingNanos() {
+        if (!running || paused) return frozenRemaining;
+        return Math.max(0, deadline - clock.getAsLong());
+    }
+
+    public int getRemainingMillis() {
+        return (int) (getRemainingNanos() / 1_000_000L);
+    }
+
+    public synchronized boolean isRunning() { return running; }
+    public synchronized boolean isPaused() { return paused; }
+}
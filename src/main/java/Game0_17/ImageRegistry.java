@@ -0,0 +1,93 @@
+package Game0_17;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 全局图片注册表
+ * 同一路径的图片在整个进程里只解码一次，游戏、换装系统和装扮商店拿到的是同一个对象
+ * （SpriteCache 按对象缓存，同一张原图的缩放版本也因此共享）。
+ * 启动时 {@link #preloadAll()} 在后台线程池上并行解码所有图片；之后 get 只在图片还没解码完时等待它一个。
+ * 缩放后的版本按 (路径, 宽, 高) 缓存，用 SpriteCache.scale 的逐级双线性缩放一次生成，不再每次打开对话框都 getScaledInstance。
+ */
+public final class ImageRegistry {
+
+    /** 游戏用到的所有图片 */
+    public static final String BACKGROUND = "/images/R-C.jpg";
+    public static final String DONALD = "/images/duck.jpg";
+    public static final String LITTLE_DUCK = "/images/little_duck.png";
+    public static final String RED_PACKET_SMALL = "/images/redpacket.png";
+    public static final String RED_PACKET_MIDDLE = "/images/redpacket-middle.png";
+    public static final String RED_PACKET_BIG = "/images/redpacket-big.png";
+    public static final String SPORT_STYLE = "/images/yd_style.jpeg";
+    public static final String FORMAL_STYLE = "/images/zs_style.jpeg";
+    public static final String MIXED_STYLE = "/images/hd_style.jpeg";
+    public static final String SHOP_BACKGROUND = "/images/shopbackground.png";
+
+    private static final String[] ALL = {
+            BACKGROUND, DONALD, LITTLE_DUCK, RED_PACKET_SMALL, RED_PACKET_MIDDLE, RED_PACKET_BIG,
+            SPORT_STYLE, FORMAL_STYLE, MIXED_STYLE, SHOP_BACKGROUND
+    };
+    /** 商店预览图的尺寸，启动时一并生成 */
+    public static final int SHOP_PREVIEW_SIZE = 140;
+
+    private static final Map<String, CompletableFuture<BufferedImage>> images = new ConcurrentHashMap<>();
+    private static final Map<String, CompletableFuture<BufferedImage>> scaled = new ConcurrentHashMap<>();
+
+    private static final AtomicInteger loaderIndex = new AtomicInteger();
+    private static final ExecutorService loader = Executors.newFixedThreadPool(
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())), r -> {
+                Thread t = new Thread(r, "image-loader-" + loaderIndex.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+
+    private ImageRegistry() {}
+
+    /** 在后台开始解码所有图片和商店预览图，立即返回；程序启动时最先调用 */
+    public static void preloadAll() {
+        for (String path : ALL) request(path);
+        requestScaled(SPORT_STYLE, SHOP_PREVIEW_SIZE, SHOP_PREVIEW_SIZE);
+        requestScaled(FORMAL_STYLE, SHOP_PREVIEW_SIZE, SHOP_PREVIEW_SIZE);
+        requestScaled(MIXED_STYLE, SHOP_PREVIEW_SIZE, SHOP_PREVIEW_SIZE);
+        requestScaled(DONALD, SHOP_PREVIEW_SIZE, SHOP_PREVIEW_SIZE);
+    }
+
+    /** 取得原图，还没解码完时等待；图片不存在或解码失败时返回 null */
+    public static BufferedImage get(String path) {
+        return request(path).join();
+    }
+
+    /** 取得缩放到 w x h 的版本，原图不存在时返回 null */
+    public static BufferedImage getScaled(String path, int w, int h) {
+        return requestScaled(path, w, h).join();
+    }
+
+    private static CompletableFuture<BufferedImage> request(String path) {
+        return images.computeIfAbsent(path, p -> CompletableFuture.supplyAsync(() -> decode(p), loader));
+    }
+
+    private static CompletableFuture<BufferedImage> requestScaled(String path, int w, int h) {
+        return scaled.computeIfAbsent(path + "@" + w + "x" + h,
+                k -> request(path).thenApplyAsync(img -> img != null ? SpriteCache.scale(img, w, h, null) : null, loader));
+    }
+
+    private static BufferedImage decode(String path) {
+        URL url = ImageRegistry.class.getResource(path);
+        if (url == null) return null;
+        try {
+            return ImageIO.read(url);
+        } catch (IOException e) {
+            System.err.println("无法加载图片: " + path + " (" + e.getMessage() + ")");
+            return null;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package Game0_17;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * MySQL 存储 - 表结构与 duck_game.sql 一致，连接都从 ConnectionPool 借
+ */
+public class JdbcGameStore implements GameStore {
+
+    private static final String ADD_BALANCE = "UPDATE game_stats SET total_amount = total_amount + ? WHERE id=1";
+    /** 余额够才扣，检查和扣除在同一条语句里，由行锁保证原子 */
+    private static final String SPEND_BALANCE = "UPDATE game_stats SET total_amount = total_amount - ? "
+            + "WHERE id=1 AND total_amount >= ?";
+    private static final String UPDATE_SKILL_STATS = "UPDATE skill_stats SET called_count = called_count + ?, "
+            + "used_count = used_count + ?, not_used_count = not_used_count + ? WHERE duck_name = ?";
+    private static final String UPSERT_SUIT = "INSERT INTO suit_purchases (suit_name, is_purchased, purchase_time) "
+            + "VALUES (?, 1, NOW()) ON DUPLICATE KEY UPDATE is_purchased = 1, purchase_time = NOW()";
+    private static final String INSERT_CALL = "INSERT INTO call_history (duck_name, was_used, session_amount, call_time) "
+            + "VALUES (?, ?, ?, ?)";
+
+    private final ConnectionPool pool;
+    private boolean opened;
+
+    public JdbcGameStore(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public synchronized void open() throws SQLException {
+        if (opened) return;
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS game_stats (id INT PRIMARY KEY, total_amount INT DEFAULT 0)");
+            stmt.execute("INSERT IGNORE INTO game_stats (id, total_amount) VALUES (1, 0)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS skill_stats (" +
+                    "duck_name VARCHAR(20) PRIMARY KEY, skill_name VARCHAR(50), called_count INT DEFAULT 0, " +
+                    "used_count INT DEFAULT 0, not_used_count INT DEFAULT 0)");
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT IGNORE INTO skill_stats (duck_name, skill_name) VALUES (?, ?)")) {
+                for (int i = 0; i < DUCK_NAMES.length; i++) {
+                    ps.setString(1, DUCK_NAMES[i]);
+                    ps.setString(2, SKILL_NAMES[i]);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            stmt.execute("CREATE TABLE IF NOT EXISTS suit_purchases (" +
+                    "suit_name VARCHAR(50) PRIMARY KEY, " +
+                    "is_purchased BOOLEAN DEFAULT FALSE, " +
+                    "purchase_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS call_history (" +
+                    "id INT NOT NULL AUTO_INCREMENT PRIMARY KEY, duck_name VARCHAR(20) NOT NULL, " +
+                    "was_used TINYINT(1) DEFAULT 0, session_amount INT DEFAULT 0, " +
+                    "call_time TIMESTAMP NULL DEFAULT CURRENT_TIMESTAMP, " +
+                    "INDEX idx_duck_time (duck_name, call_time), INDEX idx_call_time (call_time))");
+            ensureCallIndex(conn, "idx_duck_time", "duck_name, call_time");
+            ensureCallIndex(conn, "idx_duck_summary", "duck_name, call_time, was_used, session_amount");
+            dropCallIndex(conn, "idx_duck_name");
+        }
+        opened = true;
+    }
+
+    /**
+     * call_history 上按小鸭子查时间窗口用的两个索引，InnoDB 二级索引末尾都自带主键 id：
+     * - idx_duck_time (duck_name, call_time)：后面紧跟 id，正好是分页的 (call_time, id) 顺序，按索引顺序读出一页就停，不用排序
+     * - idx_duck_summary 再带上 was_used 和 session_amount：汇总只读索引不回表，但 id 排在最后，不能用来分页
+     * MySQL 没有 CREATE INDEX IF NOT EXISTS，先查一下
+     */
+    private static void ensureCallIndex(Connection conn, String name, String columns) throws SQLException {
+        if (hasCallIndex(conn, name)) return;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE INDEX " + name + " ON call_history (" + columns + ")");
+        }
+    }
+
+    /** 旧表上的 idx_duck_name (duck_name) 是 idx_duck_time 的前缀，多余的索引只会拖慢插入 */
+    private static void dropCallIndex(Connection conn, String name) throws SQLException {
+        if (!hasCallIndex(conn, name)) return;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP INDEX " + name + " ON call_history");
+        }
+    }
+
+    private static boolean hasCallIndex(Connection conn, String name) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM information_schema.statistics "
+                + "WHERE table_schema = DATABASE() AND table_name = 'call_history' AND index_name = ?")) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        }
+    }
+
+    @Override
+    public int loadBalance() throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT total_amount FROM game_stats WHERE id=1")) {
+            return rs.next() ? rs.getInt("total_amount") : 0;
+        }
+    }
+
+    @Override
+    public List<SkillStats> loadSkillStats() throws SQLException {
+        List<SkillStats> result = new ArrayList<>();
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT duck_name, skill_name, called_count, used_count, not_used_count "
+                     + "FROM skill_stats ORDER BY duck_name")) {
+            while (rs.next()) {
+                result.add(new SkillStats(rs.getString("duck_name"), rs.getString("skill_name"),
+                        rs.getInt("called_count"), rs.getInt("used_count"), rs.getInt("not_used_count")));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void resetSkillStats() throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("UPDATE skill_stats SET called_count=0, used_count=0, not_used_count=0");
+        }
+    }
+
+    @Override
+    public Set<String> loadPurchasedSuits() throws SQLException {
+        Set<String> result = new LinkedHashSet<>();
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT suit_name FROM suit_purchases WHERE is_purchased = 1");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) result.add(rs.getString("suit_name"));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isSuitPurchased(String suitName) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT is_purchased FROM suit_purchases WHERE suit_name = ?")) {
+            ps.setString(1, suitName);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean("is_purchased");
+            }
+        }
+    }
+
+    @Override
+    public List<CallRecord> loadCallHistory(String duckName, long sinceMillis, CallRecord after, int limit) throws SQLException {
+        // 按 (call_time, id) 倒序；指定小鸭子时走 idx_duck_time，否则走 idx_call_time，都是索引上的反向范围扫描。
+        // 选的列 idx_duck_summary 也全都有，优化器可能选它再排序整个时间窗口，所以指定小鸭子时固定用 idx_duck_time
+        StringBuilder sql = new StringBuilder("SELECT id, duck_name, was_used, session_amount, call_time FROM call_history");
+        if (duckName != null) sql.append(" FORCE INDEX (idx_duck_time)");
+        sql.append(" WHERE call_time >= ?");
+        if (duckName != null) sql.append(" AND duck_name = ?");
+        if (after != null) sql.append(" AND (call_time < ? OR (call_time = ? AND id < ?))");
+        sql.append(" ORDER BY call_time DESC, id DESC LIMIT ?");
+
+        List<CallRecord> result = new ArrayList<>();
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            int i = 1;
+            ps.setTimestamp(i++, new Timestamp(sinceMillis));
+            if (duckName != null) ps.setString(i++, duckName);
+            if (after != null) {
+                Timestamp t = new Timestamp(after.callTimeMillis);
+                ps.setTimestamp(i++, t);
+                ps.setTimestamp(i++, t);
+                ps.setLong(i++, after.id);
+            }
+            ps.setInt(i, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    result.add(new CallRecord(rs.getLong("id"), rs.getString("duck_name"), rs.getBoolean("was_used"),
+                            rs.getInt("session_amount"), rs.getTimestamp("call_time").getTime()));
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<CallSummary> summarizeCalls(long sinceMillis) throws SQLException {
+        // 和文件存储一样返回时间窗口内出现过的每只小鸭子；按 duck_name 分组正好是 idx_duck_summary 的顺序，
+        // 只读覆盖索引、不用临时表排序
+        List<CallSummary> result = new ArrayList<>();
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT duck_name, COUNT(*) AS calls, "
+                     + "COALESCE(SUM(was_used), 0) AS used, COALESCE(SUM(session_amount), 0) AS amount "
+                     + "FROM call_history WHERE call_time >= ? "
+                     + "GROUP BY duck_name ORDER BY duck_name")) {
+            ps.setTimestamp(1, new Timestamp(sinceMillis));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    result.add(new CallSummary(rs.getString("duck_name"), rs.getInt("calls"),
+                            rs.getInt("used"), rs.getLong("amount")));
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void write(Changes changes) throws SQLException {
+        if (changes.isEmpty()) return;
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                writeChanges(conn, changes);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public boolean spend(int cost, Changes purchase) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            if (purchase.isEmpty()) {
+                // 只扣钱时一条语句就够了，不用开事务
+                return spendBalance(conn, cost);
+            }
+            conn.setAutoCommit(false);
+            try {
+                if (!spendBalance(conn, cost)) {
+                    conn.rollback();
+                    return false;
+                }
+                writeChanges(conn, purchase);
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static boolean spendBalance(Connection conn, int cost) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SPEND_BALANCE)) {
+            ps.setInt(1, cost);
+            ps.setInt(2, cost);
+            return ps.executeUpdate() == 1;
+        }
+    }
+
+    /** 在调用方的事务里写入一批变更 */
+    private static void writeChanges(Connection conn, Changes changes) throws SQLException {
+        if (changes.balanceDelta != 0) {
+            try (PreparedStatement ps = conn.prepareStatement(ADD_BALANCE)) {
+                ps.setInt(1, changes.balanceDelta);
+                ps.executeUpdate();
+            }
+        }
+        if (!changes.skillDeltas.isEmpty()) {
+            try (PreparedStatement ps = conn.prepareStatement(UPDATE_SKILL_STATS)) {
+                for (Map.Entry<String, int[]> e : changes.skillDeltas.entrySet()) {
+                    int[] d = e.getValue();
+                    ps.setInt(1, d[0]);
+                    ps.setInt(2, d[1]);
+                    ps.setInt(3, d[2]);
+                    ps.setString(4, e.getKey());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+        if (!changes.suits.isEmpty()) {
+            try (PreparedStatement ps = conn.prepareStatement(UPSERT_SUIT)) {
+                for (String suit : changes.suits) {
+                    ps.setString(1, suit);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+        if (!changes.calls.isEmpty()) {
+            try (PreparedStatement ps = conn.prepareStatement(INSERT_CALL)) {
+                for (CallRecord call : changes.calls) {
+                    ps.setString(1, call.duckName);
+                    ps.setBoolean(2, call.wasUsed);
+                    ps.setInt(3, call.sessionAmount);
+                    ps.setTimestamp(4, new Timestamp(call.callTimeMillis));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    @Override
+    public String describe() {
+        return String.format("MySQL 连接 活动 %d 空闲 %d  借用平均 %.1fms 最长 %.1fms",
+                pool.getActiveCount(), pool.getIdleCount(), pool.getAverageWaitMillis(), pool.getMaxWaitMillis());
+    }
+}
@@ -0,0 +1,34 @@
+package Game0_17;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class LittleDuck {
+    private int x, y, width, height;
+    private String name;
+    private SkillType skill;
+
+    public LittleDuck(int x, int y, int w, int h, String name, SkillType skill) {
+        this.x = x; this.y = y; this.width = w; this.height = h;
+        this.name = name; this.skill = skill;
+    }
+
+    public int getX() { return x; }
+    public int getY() { return y; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public String getName() { return name; }
+    public SkillType getSkill() { return skill; }
+
+    /** 游戏里的三只小鸭子（名字与 GameStore.DUCK_NAMES 一致），在屏幕底部等距排开 */
+    static List<LittleDuck> createDefaults() {
+        SkillType[] skills = {SkillType.SPEED_UP, SkillType.SIZE_UP, SkillType.AMOUNT_UP};
+        int spacing = GameSimulation.WIDTH / 4;
+        List<LittleDuck> ducks = new ArrayList<>();
+        for (int i = 0; i < skills.length; i++) {
+            ducks.add(new LittleDuck(spacing * (i + 1) - 20, GameSimulation.HEIGHT - 80, 50, 50,
+                    GameStore.DUCK_NAMES[i], skills[i]));
+        }
+        return ducks;
+    }
+}
@@ -8,6 +8,9 @@ import javax.swing.SwingUtilities;
  */
 public class Main {
     public static void main(String[] args) {
+        StartupTimeline.mark("main");
+        // 图片在后台并行解码，与创建窗口同时进行
+        ImageRegistry.preloadAll();
         SwingUtilities.invokeLater(() -> {
             // 创建游戏主窗口
             GameFrame gameFrame = new GameFrame();
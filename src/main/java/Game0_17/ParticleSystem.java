@@ -0,0 +1,262 @@
+package Game0_17;
+
+import java.awt.*;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 粒子系统 - 抢到红包的闪光、金币迸发和红包雨的雨丝
+ * 固定容量，所有状态是预分配的基本类型数组，更新和绘制都是对数组的批量循环，运行中不分配对象。
+ * 粒子只用于画面效果，不参与规则，由渲染线程独占；其他线程通过 {@link #requestBurst} 提交发射请求。
+ * 硬性预算：粒子数量不超过容量；每帧更新加绘制的耗时超过 {@link #TIME_BUDGET_NANOS} 时降低质量系数，
+ * 之后的发射数量和存活上限都按系数缩减，耗时回落后再慢慢恢复，所以再大的红包雨也不会拖垮帧时间。
+ */
+public class ParticleSystem {
+
+    public static final int SPARKLE = 0;
+    public static final int COIN = 1;
+    public static final int STREAK = 2;
+    private static final int TYPES = 3;
+
+    public static final int DEFAULT_CAPACITY = 2048;
+    public static final long TIME_BUDGET_NANOS = 2_000_000L;
+    /** 透明度分成几档，每档一个预先创建的 Color，绘制时按 (类型, 档位) 分批 */
+    private static final int ALPHA_LEVELS = 8;
+    /** 单帧最长时间步，窗口被拖动或暂停后不会让粒子瞬移 */
+    private static final float MAX_DT = 0.1f;
+    private static final float GRAVITY = 600f;
+
+    private static final Color[][] COLORS = new Color[TYPES][ALPHA_LEVELS];
+    static {
+        int[] rgb = {0xFFF6B0, 0xFFC820, 0xE8262E};
+        for (int t = 0; t < TYPES; t++) {
+            for (int a = 0; a < ALPHA_LEVELS; a++) {
+                COLORS[t][a] = new Color(rgb[t] | (255 * (a + 1) / ALPHA_LEVELS) << 24, true);
+            }
+        }
+    }
+
+    private final int capacity;
+    private final float[] x, y, vx, vy, life, maxLife;
+    private final byte[] type;
+    private int count;
+
+    // 待发射请求：type, x, y, count，环形缓冲，多个线程写、渲染线程读
+    private final int[] pending = new int[4 * 256];
+    private int pendingHead, pendingSize;
+
+    // 分批绘制用的计数排序缓冲
+    private final int[] bucketStart = new int[TYPES * ALPHA_LEVELS + 1];
+    private final int[] order;
+
+    private final Random random = new Random();
+    private long lastUpdate;
+    private float quality = 1f;
+    private long lastCostNanos;
+    private final AtomicInteger dropped = new AtomicInteger();
+    private int minX, minY, maxX, maxY;
+
+    public ParticleSystem() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ParticleSystem(int capacity) {
+        this.capacity = capacity;
+        x = new float[capacity];
+        y = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        life = new float[capacity];
+        maxLife = new float[capacity];
+        type = new byte[capacity];
+        order = new int[capacity];
+    }
+
+    // ======== 任意线程 ========
+
+    /** 请求在 (px, py) 发射 n 个某类粒子，下一帧生效；请求太多时丢弃 */
+    public synchronized void requestBurst(int particleType, int px, int py, int n) {
+        if (pendingSize * 4 == pending.length) { dropped.addAndGet(n); return; }
+        int k = ((pendingHead + pendingSize) * 4) % pending.length;
+        pending[k] = particleType;
+        pending[k + 1] = px;
+        pending[k + 2] = py;
+        pending[k + 3] = n;
+        pendingSize++;
+    }
+
+    /** 抢到红包：一圈闪光加上和金额成正比的金币 */
+    public void requestCatch(int px, int py, int amount) {
+        requestBurst(SPARKLE, px, py, 12);
+        requestBurst(COIN, px, py, Math.min(24, 3 + amount));
+    }
+
+    /** 红包雨：在屏幕顶部撒下雨丝 */
+    public void requestRain(int packets) {
+        requestBurst(STREAK, -1, 0, packets * 6);
+    }
+
+    // ======== 渲染线程 ========
+
+    /** 处理发射请求并推进所有粒子，每帧调用一次 */
+    public void update(long nowNanos) {
+        // 先按上一帧（更新 + 各次绘制）的总耗时调整质量
+        adjustQuality();
+        long start = System.nanoTime();
+        float dt = lastUpdate == 0 ? 0 : Math.min(MAX_DT, (nowNanos - lastUpdate) / 1e9f);
+        lastUpdate = nowNanos;
+        drainRequests();
+
+        int n = count;
+        for (int i = n - 1; i >= 0; i--) {
+            life[i] -= dt;
+            if (life[i] <= 0) {
+                remove(i);
+                continue;
+            }
+            if (type[i] == COIN) vy[i] += GRAVITY * dt;
+            x[i] += vx[i] * dt;
+            y[i] += vy[i] * dt;
+        }
+        lastCostNanos = System.nanoTime() - start;
+    }
+
+    private synchronized void drainRequests() {
+        while (pendingSize > 0) {
+            int k = pendingHead * 4;
+            emit(pending[k], pending[k + 1], pending[k + 2], pending[k + 3]);
+            pendingHead = (pendingHead + 1) % (pending.length / 4);
+            pendingSize--;
+        }
+    }
+
+    private void emit(int particleType, int px, int py, int n) {
+        int limit = (int) (capacity * quality);
+        int wanted = Math.max(1, (int) (n * quality));
+        for (int j = 0; j < wanted; j++) {
+            if (count >= limit) { dropped.addAndGet(wanted - j); return; }
+            int i = count++;
+            type[i] = (byte) particleType;
+            switch (particleType) {
+                case SPARKLE: {
+                    double angle = random.nextDouble() * Math.PI * 2;
+                    float speed = 60 + random.nextFloat() * 120;
+                    x[i] = px; y[i] = py;
+                    vx[i] = (float) Math.cos(angle) * speed;
+                    vy[i] = (float) Math.sin(angle) * speed;
+                    maxLife[i] = 0.3f + random.nextFloat() * 0.2f;
+                    break;
+                }
+                case COIN:
+                    x[i] = px; y[i] = py;
+                    vx[i] = (random.nextFloat() - 0.5f) * 200;
+                    vy[i] = -150 - random.nextFloat() * 200;
+                    maxLife[i] = 0.6f + random.nextFloat() * 0.4f;
+                    break;
+                default:
+                    x[i] = px >= 0 ? px : random.nextInt(GameSimulation.WIDTH);
+                    y[i] = py - random.nextInt(GameSimulation.HEIGHT / 2);
+                    vx[i] = 0;
+                    vy[i] = 500 + random.nextFloat() * 300;
+                    maxLife[i] = 1.0f + random.nextFloat() * 0.5f;
+                    break;
+            }
+            life[i] = maxLife[i];
+        }
+    }
+
+    private void remove(int i) {
+        int last = --count;
+        x[i] = x[last]; y[i] = y[last];
+        vx[i] = vx[last]; vy[i] = vy[last];
+        life[i] = life[last]; maxLife[i] = maxLife[last];
+        type[i] = type[last];
+    }
+
+    /**
+     * 按 (类型, 透明度档位) 分批绘制，每批只设置一次颜色。
+     * 增量绘制时一帧可能调用多次（每个脏矩形一次），耗时都计入本帧
+     */
+    public void draw(Graphics g) {
+        long start = System.nanoTime();
+        int n = count;
+        int buckets = TYPES * ALPHA_LEVELS;
+        java.util.Arrays.fill(bucketStart, 0);
+        for (int i = 0; i < n; i++) bucketStart[bucketOf(i) + 1]++;
+        for (int b = 0; b < buckets; b++) bucketStart[b + 1] += bucketStart[b];
+        for (int i = 0; i < n; i++) order[bucketStart[bucketOf(i)]++] = i;
+        // 计数排序后 bucketStart[b] 指向第 b 批的末尾
+        int from = 0;
+        for (int b = 0; b < buckets; b++) {
+            int to = bucketStart[b];
+            if (to == from) continue;
+            int t = b / ALPHA_LEVELS;
+            g.setColor(COLORS[t][b % ALPHA_LEVELS]);
+            for (int k = from; k < to; k++) {
+                int i = order[k];
+                int px = (int) x[i], py = (int) y[i];
+                if (t == SPARKLE) g.fillRect(px - 1, py - 1, 3, 3);
+                else if (t == COIN) g.fillOval(px - 3, py - 3, 6, 6);
+                else g.drawLine(px, py, px, py + 12);
+            }
+            from = to;
+        }
+        lastCostNanos += System.nanoTime() - start;
+    }
+
+    private int bucketOf(int i) {
+        int level = (int) (life[i] / maxLife[i] * ALPHA_LEVELS);
+        if (level >= ALPHA_LEVELS) level = ALPHA_LEVELS - 1;
+        else if (level < 0) level = 0;
+        return type[i] * ALPHA_LEVELS + level;
+    }
+
+    /** 超出预算时立即减半，低于一半预算时每帧恢复一点 */
+    private void adjustQuality() {
+        if (lastCostNanos > TIME_BUDGET_NANOS) {
+            quality = Math.max(0.05f, quality * 0.5f);
+            // 存活的粒子也截断到新的上限，从数组末尾（最新发射的）开始丢
+            int limit = (int) (capacity * quality);
+            if (count > limit) {
+                dropped.addAndGet(count - limit);
+                count = limit;
+            }
+        } else if (lastCostNanos < TIME_BUDGET_NANOS / 2 && quality < 1f) {
+            quality = Math.min(1f, quality + 0.02f);
+        }
+    }
+
+    /**
+     * 计算所有粒子当前的包围盒，没有粒子时返回 false
+     * 结果通过 boundsX/boundsY/boundsWidth/boundsHeight 读取
+     */
+    public boolean computeBounds() {
+        if (count == 0) return false;
+        float x0 = Float.MAX_VALUE, y0 = Float.MAX_VALUE, x1 = -Float.MAX_VALUE, y1 = -Float.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            if (x[i] < x0) x0 = x[i];
+            if (y[i] < y0) y0 = y[i];
+            if (x[i] > x1) x1 = x[i];
+            if (y[i] > y1) y1 = y[i];
+        }
+        // 留出粒子本身的大小（金币半径 3，雨丝长 12）
+        minX = (int) x0 - 4;
+        minY = (int) y0 - 4;
+        maxX = (int) x1 + 5;
+        maxY = (int) y1 + 14;
+        return true;
+    }
+
+    public int boundsX() { return minX; }
+    public int boundsY() { return minY; }
+    public int boundsWidth() { return maxX - minX; }
+    public int boundsHeight() { return maxY - minY; }
+
+    public int count() { return count; }
+    public int capacity() { return capacity; }
+    /** 当前质量系数 (0, 1]，1 表示没有降级 */
+    public float getQuality() { return quality; }
+    /** 因为容量或预算被丢弃的粒子总数 */
+    public int getDropped() { return dropped.get(); }
+    public long getLastCostNanos() { return lastCostNanos; }
+}
@@ -0,0 +1,253 @@
+package Game0_17;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 写回队列 - 金额、技能统计和点名历史先记在内存里，由后台线程批量写入数据库
+ * 界面线程只做一次加锁的内存更新，不再等数据库往返。
+ * 写入前合并：金额的增减和技能统计的次数相加，点名历史按顺序全部插入。
+ * 金额只按增减写入（total_amount = total_amount + ?），两个窗口同时玩也不会互相覆盖。
+ * 每 {@link #FLUSH_INTERVAL_MILLIS} 毫秒（-Dduck.db.flush.ms）作为一批交给 {@link GameStore#write}（MySQL 上是一个事务里的 JDBC 批量写入），退出时再写一次；
+ * 写入失败时把内容合并回队列，下次重试。
+ * 需要读到最新数据的地方（技能统计、重置）先调用 {@link #flush()}。
+ * 花钱（买技能、买套装）要先知道余额够不够，不能排队，走 {@link #spend}：在写入线程上先写完队列，再由存储做一次条件扣款，结果异步返回。
+ */
+public final class PersistenceQueue {
+
+    public static final long FLUSH_INTERVAL_MILLIS = Long.getLong("duck.db.flush.ms", 1_000);
+    /** flush() 和退出时等待写入完成的最长时间 */
+    private static final long FLUSH_WAIT_MILLIS = 10_000;
+
+    private static volatile PersistenceQueue shared;
+
+    /** 写入全局 GameStore 的队列，第一次使用时创建 */
+    public static PersistenceQueue shared() {
+        PersistenceQueue q = shared;
+        if (q == null) {
+            synchronized (PersistenceQueue.class) {
+                q = shared;
+                if (q == null) {
+                    q = new PersistenceQueue(GameStore.shared(), FLUSH_INTERVAL_MILLIS);
+                    shared = q;
+                }
+            }
+        }
+        return q;
+    }
+
+    private final GameStore store;
+    private final ScheduledExecutorService writer;
+
+    // 待写入的内容，都由 this 保护
+    /** 总金额的增减 */
+    private int balanceDelta;
+    /** 每只小鸭子的 {点名, 使用, 未使用} 增量 */
+    private Map<String, int[]> skillDeltas = new LinkedHashMap<>();
+    /** 每局一条的点名历史，不合并，按顺序批量插入 */
+    private List<GameStore.CallRecord> calls = new ArrayList<>();
+    /** 合并前的变更次数 */
+    private int pendingChanges;
+    private boolean stopped;
+
+    // 指标
+    private long flushes, failedFlushes, rowsWritten, changesWritten;
+    private long totalFlushNanos, maxFlushNanos, lastFlushNanos;
+    private boolean failing;
+
+    public PersistenceQueue(GameStore store, long flushIntervalMillis) {
+        this.store = store;
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "duck-db-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        writer.scheduleWithFixedDelay(this::flushPending, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // ======== 记录变更（任意线程，不访问数据库） ========
+
+    /** 总金额增加（负数为减少），多次相加后一起写入 */
+    public synchronized void addBalance(int delta) {
+        if (stopped) return;
+        balanceDelta += delta;
+        pendingChanges++;
+    }
+
+    /** 一次点名 */
+    public synchronized void duckCalled(String duckName) {
+        addSkillDelta(duckName, 0);
+    }
+
+    /** 点名后是否花钱使用了技能 */
+    public synchronized void skillUsed(String duckName, boolean used) {
+        addSkillDelta(duckName, used ? 1 : 2);
+    }
+
+    private void addSkillDelta(String duckName, int column) {
+        if (stopped) return;
+        skillDeltas.computeIfAbsent(duckName, k -> new int[3])[column]++;
+        pendingChanges++;
+    }
+
+    /** 一局结束：点名的小鸭子、是否使用技能、本局金额和点名时间 */
+    public synchronized void roundPlayed(GameStore.CallRecord call) {
+        if (stopped) return;
+        calls.add(call);
+        pendingChanges++;
+    }
+
+    // ======== 写入 ========
+
+    /** 立即写入并等待完成，用在读取统计之前；写入失败时内容仍留在队列里 */
+    public void flush() {
+        Future<?> f;
+        try {
+            f = writer.submit(this::flushPending);
+        } catch (RejectedExecutionException e) {
+            return;
+        }
+        await(f);
+    }
+
+    /**
+     * 花钱：存储里的余额够 cost 时扣掉并在同一个事务里写入 purchase，结果为 true；不够为 false。
+     * 在写入线程上执行，先把队列里的收入写进去，再做一次条件扣款，所以不会和队列里的写入交错。
+     * 调用方不等待，结果在写入线程上完成；存储不可用（或队列写不进去）时以 SQLException 异常完成。
+     * 已经排上的扣款一定会等到存储给出结果，不会中途放弃，所以结果总是和存储一致
+     */
+    public CompletableFuture<Boolean> spend(int cost, GameStore.Changes purchase) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        try {
+            writer.execute(() -> {
+                try {
+                    if (!flushPending()) throw new SQLException("之前的变更还没写入");
+                    result.complete(store.spend(cost, purchase));
+                } catch (SQLException | RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new SQLException("写回队列已关闭"));
+        }
+        return result;
+    }
+
+    /** 停止接收变更，写入剩下的内容后关闭后台线程，退出前调用 */
+    public void shutdown() {
+        synchronized (this) {
+            if (stopped) return;
+            stopped = true;
+        }
+        await(writer.submit(this::flushPending));
+        writer.shutdown();
+    }
+
+    private static void await(Future<?> f) {
+        try {
+            f.get(FLUSH_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            System.err.println("等待数据库写入失败: " + e);
+        }
+    }
+
+    /** 在写入线程上执行：取走当前队列，作为一批写入存储；写入失败时返回 false */
+    private boolean flushPending() {
+        int newBalance;
+        Map<String, int[]> deltas;
+        List<GameStore.CallRecord> newCalls;
+        int changeCount;
+        synchronized (this) {
+            if (pendingChanges == 0) return true;
+            newBalance = balanceDelta;
+            deltas = skillDeltas;
+            newCalls = calls;
+            changeCount = pendingChanges;
+            balanceDelta = 0;
+            skillDeltas = new LinkedHashMap<>();
+            calls = new ArrayList<>();
+            pendingChanges = 0;
+        }
+
+        long start = System.nanoTime();
+        GameStore.Changes batch = new GameStore.Changes(newBalance, deltas, Collections.emptySet(), newCalls);
+        try {
+            store.write(batch);
+        } catch (SQLException e) {
+            requeue(newBalance, deltas, newCalls, changeCount);
+            synchronized (this) {
+                failedFlushes++;
+                if (failing) return false;
+                failing = true;
+            }
+            System.err.println("写入数据库失败，稍后重试: " + e.getMessage());
+            return false;
+        }
+
+        long elapsed = System.nanoTime() - start;
+        int rows = batch.rowCount();
+        synchronized (this) {
+            if (failing) System.err.println("数据库写入已恢复");
+            failing = false;
+            flushes++;
+            rowsWritten += rows;
+            changesWritten += changeCount;
+            lastFlushNanos = elapsed;
+            totalFlushNanos += elapsed;
+            maxFlushNanos = Math.max(maxFlushNanos, elapsed);
+        }
+        return true;
+    }
+
+    /** 写入失败，把取走的内容合并回队列 */
+    private synchronized void requeue(int oldBalance, Map<String, int[]> deltas,
+                                      List<GameStore.CallRecord> oldCalls, int changes) {
+        balanceDelta += oldBalance;
+        for (Map.Entry<String, int[]> e : deltas.entrySet()) {
+            int[] target = skillDeltas.computeIfAbsent(e.getKey(), k -> new int[3]);
+            for (int i = 0; i < 3; i++) target[i] += e.getValue()[i];
+        }
+        oldCalls.addAll(calls);
+        calls = oldCalls;
+        pendingChanges += changes;
+    }
+
+    // ======== 指标 ========
+
+    /** 队列里尚未写入的变更次数（合并前） */
+    public synchronized int getPendingChanges() { return pendingChanges; }
+
+    /** 合并后需要写入的行数 */
+    public synchronized int getPendingRows() {
+        return (balanceDelta != 0 ? 1 : 0) + skillDeltas.size() + calls.size();
+    }
+
+    public synchronized long getFlushCount() { return flushes; }
+    public synchronized long getFailedFlushCount() { return failedFlushes; }
+    public synchronized long getRowsWritten() { return rowsWritten; }
+    public synchronized long getChangesWritten() { return changesWritten; }
+    public synchronized double getLastFlushMillis() { return lastFlushNanos / 1e6; }
+    public synchronized double getAverageFlushMillis() { return flushes == 0 ? 0 : totalFlushNanos / 1e6 / flushes; }
+    public synchronized double getMaxFlushMillis() { return maxFlushNanos / 1e6; }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("写回队列 待写 %d 次变更（%d 行），已写入 %d 次 / %d 次变更合并为 %d 行，失败 %d 次，耗时平均 %.1fms 最长 %.1fms",
+                pendingChanges, getPendingRows(), flushes, changesWritten, rowsWritten, failedFlushes,
+                getAverageFlushMillis(), getMaxFlushMillis());
+    }
+}
@@ -0,0 +1,43 @@
+package Game0_17;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Image;
+import java.util.Random;
+
+/**
+ * 红包相关的常量和工具方法，红包数据本身存放在 RedPacketPool 中
+ */
+class RedPacket {
+    public enum Size { SMALL, MEDIUM, LARGE }
+
+    /** 缓存 Size.values()，避免每次调用都复制数组 */
+    public static final Size[] SIZES = Size.values();
+
+    private RedPacket() {}
+
+    public static int sizeValue(Size size) {
+        return size == Size.SMALL ? 20 : size == Size.MEDIUM ? 30 : 40;
+    }
+
+    public static int randomAmount(Size size, Random random) {
+        switch (size) {
+            case SMALL: return 1 + random.nextInt(4);
+            case MEDIUM: return 5 + random.nextInt(10);
+            case LARGE: return 15 + random.nextInt(15);
+        }
+        return 1;
+    }
+
+    /**
+     * 红包图片从精灵缓存（图集）中拷贝，金额用预渲染的数字字形绘制，每帧不产生字符串
+     */
+    public static void draw(Graphics g, SpriteCache sprites, Image img, int x, int y, int width, int height,
+                            int amount, DigitGlyphs digits) {
+        if (!sprites.draw(g, img, x, y, width, height)) {
+            g.setColor(Color.RED);
+            g.fillRect(x, y, width, height);
+        }
+        digits.draw(g, amount, x + width/2 - 5, y + height/2 + 5);
+    }
+}
@@ -0,0 +1,91 @@
+package Game0_17;
+
+import java.util.Arrays;
+
+/**
+ * 红包对象池 - 结构数组（SoA）存储
+ * 每个红包的属性存放在平行的 int 数组中，删除时用最后一个元素填补空位（O(1)），
+ * 槽位在容量内循环复用，逻辑帧中不产生任何对象分配。
+ */
+public class RedPacketPool {
+
+    private int count;
+    private int[] x, y, prevY, width, height, speed, amount, size;
+
+    public RedPacketPool(int initialCapacity) {
+        int cap = Math.max(16, initialCapacity);
+        x = new int[cap]; y = new int[cap]; prevY = new int[cap];
+        width = new int[cap]; height = new int[cap]; speed = new int[cap];
+        amount = new int[cap]; size = new int[cap];
+    }
+
+    /** 预先分配容量，避免游戏过程中扩容 */
+    public void ensureCapacity(int cap) {
+        if (cap <= x.length) return;
+        int newCap = Math.max(cap, x.length * 2);
+        x = Arrays.copyOf(x, newCap); y = Arrays.copyOf(y, newCap); prevY = Arrays.copyOf(prevY, newCap);
+        width = Arrays.copyOf(width, newCap); height = Arrays.copyOf(height, newCap);
+        speed = Arrays.copyOf(speed, newCap); amount = Arrays.copyOf(amount, newCap);
+        size = Arrays.copyOf(size, newCap);
+    }
+
+    /** 添加一个红包，返回它的下标 */
+    public int add(int px, int py, int w, int h, int spd, int amt, RedPacket.Size sz) {
+        ensureCapacity(count + 1);
+        int i = count++;
+        set(i, px, py, w, h, spd, amt, sz);
+        return i;
+    }
+
+    /** 覆盖已有槽位（用于红包雨循环复用） */
+    public void set(int i, int px, int py, int w, int h, int spd, int amt, RedPacket.Size sz) {
+        x[i] = px; y[i] = py; prevY[i] = py;
+        width[i] = w; height[i] = h; speed[i] = spd;
+        amount[i] = amt; size[i] = sz.ordinal();
+    }
+
+    /**
+     * 删除下标为 i 的红包，最后一个红包移到 i 的位置。
+     * 遍历中删除时应从后往前遍历。
+     */
+    public void remove(int i) {
+        int last = --count;
+        if (i != last) {
+            x[i] = x[last]; y[i] = y[last]; prevY[i] = prevY[last];
+            width[i] = width[last]; height[i] = height[last]; speed[i] = speed[last];
+            amount[i] = amount[last]; size[i] = size[last];
+        }
+    }
+
+    public void clear() { count = 0; }
+
+    /** 所有红包下落一步，记录上一帧位置用于插值 */
+    public void fall() {
+        for (int i = 0; i < count; i++) {
+            prevY[i] = y[i];
+            y[i] += speed[i];
+        }
+    }
+
+    public int count() { return count; }
+    public int capacity() { return x.length; }
+    public int x(int i) { return x[i]; }
+    public int y(int i) { return y[i]; }
+    public int prevY(int i) { return prevY[i]; }
+    public int width(int i) { return width[i]; }
+    public int height(int i) { return height[i]; }
+    public int speed(int i) { return speed[i]; }
+    public int amount(int i) { return amount[i]; }
+    public RedPacket.Size size(int i) { return RedPacket.SIZES[size[i]]; }
+
+    /** 把列数据整体拷贝到快照中 */
+    void copyTo(int[] dx, int[] dy, int[] dPrevY, int[] dWidth, int[] dHeight, int[] dAmount, int[] dSize) {
+        System.arraycopy(x, 0, dx, 0, count);
+        System.arraycopy(y, 0, dy, 0, count);
+        System.arraycopy(prevY, 0, dPrevY, 0, count);
+        System.arraycopy(width, 0, dWidth, 0, count);
+        System.arraycopy(height, 0, dHeight, 0, count);
+        System.arraycopy(amount, 0, dAmount, 0, count);
+        System.arraycopy(size, 0, dSize, 0, count);
+    }
+}
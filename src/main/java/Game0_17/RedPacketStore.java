@@ -0,0 +1,175 @@
+package Game0_17;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 红包实体仓库 - 单写者模型
+ * 只有游戏循环线程可以直接修改红包列表；其他线程（生成线程、EDT 上的红包雨）
+ * 通过无锁命令队列提交请求，在每个逻辑帧开始时统一执行。
+ * 渲染线程读取每帧发布的只读快照，绘制和逻辑互不阻塞。
+ */
+public class RedPacketStore {
+
+    /** 生成/清空请求，由任意线程提交 */
+    private static final class Command {
+        enum Type { SPAWN, CLEAR, STORM }
+
+        final Type type;
+        final int count, maxStartY, minSpeed, speedRange;
+
+        Command(Type type, int count, int maxStartY, int minSpeed, int speedRange) {
+            this.type = type; this.count = count; this.maxStartY = maxStartY;
+            this.minSpeed = minSpeed; this.speedRange = speedRange;
+        }
+    }
+
+    private final ConcurrentLinkedQueue<Command> commands = new ConcurrentLinkedQueue<>();
+
+    // 以下字段只允许游戏循环线程访问
+    private final RedPacketPool pool = new RedPacketPool(256);
+    private final Random random;
+    private boolean storm = false;
+
+    // 三缓冲快照：写者填 back，发布时与 middle 交换；读者取走 middle 作为 front
+    private static final int DIRTY = 4;
+    private final Snapshot[] buffers = {new Snapshot(), new Snapshot(), new Snapshot()};
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0;
+    private int front = 2;
+
+    public RedPacketStore() {
+        this(new Random());
+    }
+
+    /** @param random 生成位置、速度和金额用的随机数，传入固定种子可复现 */
+    public RedPacketStore(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * 请求生成红包，可从任意线程调用
+     * @param maxStartY 初始 y 坐标上限（0 表示从顶部落下）
+     */
+    public void requestSpawn(int count, int maxStartY, int minSpeed, int speedRange) {
+        commands.offer(new Command(Command.Type.SPAWN, count, maxStartY, minSpeed, speedRange));
+    }
+
+    /** 请求清空所有红包并退出风暴模式，可从任意线程调用 */
+    public void requestClear() {
+        commands.offer(new Command(Command.Type.CLEAR, 0, 0, 0, 0));
+    }
+
+    /**
+     * 请求进入红包风暴模式：一次性铺满 count 个红包，
+     * 落出屏幕的红包会在顶部复用槽位重新生成，使同屏数量保持不变
+     */
+    public void requestStorm(int count) {
+        commands.offer(new Command(Command.Type.STORM, count, 0, 2, 5));
+    }
+
+    /** 执行所有待处理的命令，只在游戏循环线程调用 */
+    public void drainCommands() {
+        Command cmd;
+        while ((cmd = commands.poll()) != null) {
+            switch (cmd.type) {
+                case CLEAR:
+                    pool.clear();
+                    storm = false;
+                    break;
+                case STORM:
+                    storm = true;
+                    pool.ensureCapacity(pool.count() + cmd.count);
+                    for (int i = 0; i < cmd.count; i++) {
+                        spawn(-GameSimulation.HEIGHT + random.nextInt(2 * GameSimulation.HEIGHT), cmd.minSpeed, cmd.speedRange);
+                    }
+                    break;
+                case SPAWN:
+                    pool.ensureCapacity(pool.count() + cmd.count);
+                    for (int i = 0; i < cmd.count; i++) {
+                        int y = cmd.maxStartY > 0 ? random.nextInt(cmd.maxStartY) : 0;
+                        spawn(y, cmd.minSpeed, cmd.speedRange);
+                    }
+                    break;
+            }
+        }
+    }
+
+    private void spawn(int y, int minSpeed, int speedRange) {
+        RedPacket.Size size = RedPacket.SIZES[random.nextInt(3)];
+        int sizeValue = RedPacket.sizeValue(size);
+        pool.add(random.nextInt(GameSimulation.WIDTH - 50), y, sizeValue, sizeValue,
+                minSpeed + random.nextInt(speedRange), RedPacket.randomAmount(size, random), size);
+    }
+
+    /**
+     * 所有红包下落一步，落出 maxY 的红包被移除；风暴模式下则在顶部复用该槽位。
+     * 只在游戏循环线程调用
+     */
+    public void advance(int maxY) {
+        pool.fall();
+        for (int i = pool.count() - 1; i >= 0; i--) {
+            if (pool.y(i) <= maxY) continue;
+            if (storm) {
+                RedPacket.Size size = RedPacket.SIZES[random.nextInt(3)];
+                int sizeValue = RedPacket.sizeValue(size);
+                pool.set(i, random.nextInt(GameSimulation.WIDTH - 50), -sizeValue, sizeValue, sizeValue,
+                        pool.speed(i), RedPacket.randomAmount(size, random), size);
+            } else {
+                pool.remove(i);
+            }
+        }
+    }
+
+    /** 红包对象池，只在游戏循环线程访问 */
+    public RedPacketPool pool() { return pool; }
+
+    /** 把当前红包状态发布为快照，只在游戏循环线程调用 */
+    public void publish() {
+        Snapshot snap = buffers[back];
+        snap.fill(pool);
+        back = middle.getAndSet(back | DIRTY) & ~DIRTY;
+    }
+
+    /**
+     * 获取最新发布的快照，只允许单一渲染线程调用。
+     * 返回的快照在下一次调用前不会被修改。
+     */
+    public Snapshot acquireSnapshot() {
+        if ((middle.get() & DIRTY) != 0) {
+            front = middle.getAndSet(front) & ~DIRTY;
+        }
+        return buffers[front];
+    }
+
+    /**
+     * 红包渲染快照，按列存放每个红包的绘制数据
+     */
+    public static final class Snapshot {
+        private int count;
+        private int[] x = new int[64], y = new int[64], prevY = new int[64];
+        private int[] width = new int[64], height = new int[64], amount = new int[64], size = new int[64];
+
+        void fill(RedPacketPool pool) {
+            int n = pool.count();
+            if (n > x.length) {
+                int cap = Math.max(n, x.length * 2);
+                x = Arrays.copyOf(x, cap); y = Arrays.copyOf(y, cap); prevY = Arrays.copyOf(prevY, cap);
+                width = Arrays.copyOf(width, cap); height = Arrays.copyOf(height, cap);
+                amount = Arrays.copyOf(amount, cap); size = Arrays.copyOf(size, cap);
+            }
+            pool.copyTo(x, y, prevY, width, height, amount, size);
+            count = n;
+        }
+
+        public int count() { return count; }
+        public int x(int i) { return x[i]; }
+        public int renderY(int i, double alpha) { return (int) Math.round(prevY[i] + (y[i] - prevY[i]) * alpha); }
+        public int width(int i) { return width[i]; }
+        public int height(int i) { return height[i]; }
+        public int amount(int i) { return amount[i]; }
+        public RedPacket.Size size(int i) { return RedPacket.SIZES[size[i]]; }
+    }
+}
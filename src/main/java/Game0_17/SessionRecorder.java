@@ -0,0 +1,168 @@
+package Game0_17;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * 对局录制 - 把每局的随机种子和所有生效的输入写进一个紧凑的二进制环形缓冲
+ * 记录在游戏循环线程上、命令真正生效的那一个逻辑帧写入，所以回放时按同样的顺序重新提交即可得到完全相同的对局。
+ * 每个逻辑帧记一条 TICK（计时器时钟相对上一帧的偏差，变长整数，通常 2~3 字节），按键约 2 字节，
+ * 默认 1MB 可以保存几个小时。缓冲满时整局整局地丢掉最旧的记录，留下的内容总是从某一局开始，可以直接回放。
+ * 第一局开始之前不记录。
+ */
+public class SessionRecorder {
+
+    public static final int DEFAULT_CAPACITY = Integer.getInteger("duck.record.bytes", 1 << 20);
+    /** 文件头："DUCK" */
+    static final int MAGIC = 0x4455434B;
+    static final int VERSION = 1;
+    /** 一条记录的最大字节数（ROUND_START：1 + 8 + 1 + 1 + 10） */
+    private static final int MAX_RECORD = 21;
+
+    // 记录类型
+    static final byte TICK = 1;
+    static final byte ROUND_START = 2;
+    static final byte KEY_DOWN = 3;
+    static final byte KEY_UP = 4;
+    static final byte PAUSE = 5;
+    static final byte RESUME = 6;
+    static final byte RESET = 7;
+    static final byte RAIN = 8;
+
+    private final byte[] buffer;
+    private final int ticksPerSecond;
+    private final long tickMicros;
+    /** 已写入的总字节数和最旧一条保留记录的位置，都是不取模的绝对位置 */
+    private long start, end;
+    /** 每局开始记录的位置，用来整局丢弃 */
+    private final long[] rounds = new long[4096];
+    private int roundHead, roundCount;
+    private boolean recording;
+    private long lastClockMicros;
+    private long droppedRounds;
+
+    public SessionRecorder(int capacity, int ticksPerSecond) {
+        this.buffer = new byte[capacity];
+        this.ticksPerSecond = ticksPerSecond;
+        this.tickMicros = 1_000_000L / ticksPerSecond;
+    }
+
+    // ======== 游戏循环线程 ========
+
+    /**
+     * 一个逻辑帧结束，clockMicros 为这一帧计时器使用的时钟。
+     * 本帧生效的命令在它之前写入
+     */
+    public synchronized void tick(long clockMicros) {
+        if (recording && ensureSpace()) {
+            putByte(TICK);
+            putVarLong(zigzag(clockMicros - lastClockMicros - tickMicros));
+        }
+        lastClockMicros = clockMicros;
+    }
+
+    /** 新的一局：种子、技能、是否处于暂停，以及上一帧的时钟作为之后时钟偏差的基准 */
+    public synchronized void roundStart(long seed, SkillType skill, boolean paused) {
+        while ((end + MAX_RECORD - start > buffer.length || roundCount == rounds.length) && roundCount > 0) {
+            dropOldestRound();
+        }
+        rounds[(roundHead + roundCount++) % rounds.length] = end;
+        recording = true;
+        putByte(ROUND_START);
+        putLong(seed);
+        putByte((byte) (skill == null ? 0 : skill.ordinal() + 1));
+        putByte((byte) (paused ? 1 : 0));
+        putVarLong(lastClockMicros);
+    }
+
+    public synchronized void key(int keyCode, boolean pressed) {
+        if (!recording || !ensureSpace()) return;
+        putByte(pressed ? KEY_DOWN : KEY_UP);
+        putVarLong(keyCode);
+    }
+
+    /** 只有类型、没有参数的记录：暂停、继续、重置 */
+    public synchronized void event(byte type) {
+        if (!recording || !ensureSpace()) return;
+        putByte(type);
+    }
+
+    public synchronized void rain(int count) {
+        if (!recording || !ensureSpace()) return;
+        putByte(RAIN);
+        putVarLong(count);
+    }
+
+    // ======== 写入 ========
+
+    /** 腾出一条最长记录的空间，只能丢掉更早的局；当前这一局本身比缓冲还大时放弃它，等下一局再记录 */
+    private boolean ensureSpace() {
+        while (end + MAX_RECORD - start > buffer.length) {
+            if (roundCount <= 1) {
+                roundCount = 0;
+                start = end;
+                recording = false;
+                droppedRounds++;
+                return false;
+            }
+            dropOldestRound();
+        }
+        return true;
+    }
+
+    private void dropOldestRound() {
+        roundHead = (roundHead + 1) % rounds.length;
+        roundCount--;
+        start = roundCount > 0 ? rounds[roundHead] : end;
+        droppedRounds++;
+    }
+
+    private void putByte(byte b) {
+        buffer[(int) (end++ % buffer.length)] = b;
+    }
+
+    private void putLong(long v) {
+        for (int i = 56; i >= 0; i -= 8) putByte((byte) (v >>> i));
+    }
+
+    private void putVarLong(long v) {
+        while ((v & ~0x7FL) != 0) {
+            putByte((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        putByte((byte) v);
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    // ======== 读取 / 保存（任意线程） ========
+
+    /** 复制出当前保留的全部记录，从最旧的一局开始 */
+    public synchronized byte[] snapshot() {
+        byte[] out = new byte[(int) (end - start)];
+        for (int i = 0; i < out.length; i++) out[i] = buffer[(int) ((start + i) % buffer.length)];
+        return out;
+    }
+
+    /** 保存为回放文件，由 {@link SessionReplay#load} 读取 */
+    public void save(String path) throws IOException {
+        byte[] data = snapshot();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(ticksPerSecond);
+            out.writeInt(GameSimulation.STORM_PACKETS);
+            out.writeInt(data.length);
+            out.write(data);
+        }
+    }
+
+    public synchronized long getBytesUsed() { return end - start; }
+    public synchronized int getRoundCount() { return roundCount; }
+    public synchronized long getDroppedRounds() { return droppedRounds; }
+    public int getCapacity() { return buffer.length; }
+}
@@ -0,0 +1,237 @@
+package Game0_17;
+
+import java.awt.*;
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * 对局回放 - 读取 SessionRecorder 保存的文件，逐个逻辑帧把记录的种子和输入重新提交给 GameSimulation
+ * 回放用的 GameSimulation 必须使用 {@link #clock()} 作为计时器时钟、{@link #getTicksPerSecond()} 作为逻辑帧率，
+ * 这样每一帧的结果都与录制时相同。
+ * 界面回放：java -Dduck.replay=文件 Game0_17.Main（-Dduck.replay.speed=4 加速）
+ * 无界面回放：java -Djava.awt.headless=true Game0_17.SessionReplay 文件 [--realtime] [--csv=输出.csv]
+ * 默认尽可能快地跑完，每帧渲染到离屏图片，逐帧输出状态和耗时，用来在不同版本之间对比
+ */
+public class SessionReplay {
+
+    private final int ticksPerSecond;
+    private final int stormPackets;
+    private final byte[] data;
+    private final long tickMicros;
+    private int pos;
+    private volatile long clockMicros;
+    private boolean started;
+    private long ticks;
+
+    private SessionReplay(int ticksPerSecond, int stormPackets, byte[] data) {
+        this.ticksPerSecond = ticksPerSecond;
+        this.stormPackets = stormPackets;
+        this.data = data;
+        this.tickMicros = 1_000_000L / ticksPerSecond;
+    }
+
+    public static SessionReplay load(String path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+            if (in.readInt() != SessionRecorder.MAGIC) throw new IOException("不是对局录制文件: " + path);
+            int version = in.readShort();
+            if (version != SessionRecorder.VERSION) throw new IOException("不支持的录制版本: " + version);
+            int tps = in.readInt();
+            int storm = in.readInt();
+            byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            if (storm != GameSimulation.STORM_PACKETS) {
+                System.err.println("警告：录制时 duck.storm=" + storm + "，当前为 " + GameSimulation.STORM_PACKETS + "，回放结果会不同");
+            }
+            return new SessionReplay(tps, storm, data);
+        }
+    }
+
+    public int getTicksPerSecond() { return ticksPerSecond; }
+    public int getStormPackets() { return stormPackets; }
+    public long getTicks() { return ticks; }
+    public boolean isFinished() { return pos >= data.length; }
+
+    /** 回放时的计时器时钟，回到录制时每一帧读到的时间 */
+    public LongSupplier clock() {
+        return () -> clockMicros * 1000;
+    }
+
+    /** 录制时间轴上的当前时间（微秒），用于按真实速度回放 */
+    public long getClockMicros() { return clockMicros; }
+
+    /**
+     * 把下一个逻辑帧的记录提交给 simulation，之后由调用方执行 simulation.tick()。
+     * 在游戏循环线程调用；没有更多逻辑帧时返回 false
+     */
+    public boolean feedNextTick(GameSimulation simulation) {
+        while (pos < data.length) {
+            byte type = data[pos++];
+            switch (type) {
+                case SessionRecorder.TICK:
+                    clockMicros += tickMicros + unzigzag(readVarLong());
+                    ticks++;
+                    return true;
+                case SessionRecorder.ROUND_START: {
+                    long seed = readLong();
+                    int skill = data[pos++];
+                    boolean paused = data[pos++] != 0;
+                    clockMicros = readVarLong();
+                    // 录制内容从某一局开始，第一局之前的暂停状态要补上
+                    if (!started && paused != simulation.isPaused()) {
+                        if (paused) simulation.requestPause();
+                        else simulation.requestResume();
+                    }
+                    started = true;
+                    simulation.requestStart(skill == 0 ? null : SkillType.values()[skill - 1], seed);
+                    break;
+                }
+                case SessionRecorder.KEY_DOWN:
+                    simulation.submitKey((int) readVarLong(), true);
+                    break;
+                case SessionRecorder.KEY_UP:
+                    simulation.submitKey((int) readVarLong(), false);
+                    break;
+                case SessionRecorder.PAUSE:
+                    simulation.requestPause();
+                    break;
+                case SessionRecorder.RESUME:
+                    simulation.requestResume();
+                    break;
+                case SessionRecorder.RESET:
+                    simulation.requestReset();
+                    break;
+                case SessionRecorder.RAIN:
+                    simulation.requestRain((int) readVarLong());
+                    break;
+                default:
+                    throw new IllegalStateException("录制文件损坏，位置 " + (pos - 1) + " 的记录类型 " + type);
+            }
+        }
+        return false;
+    }
+
+    private long readLong() {
+        long v = 0;
+        for (int i = 0; i < 8; i++) v = (v << 8) | (data[pos++] & 0xFF);
+        return v;
+    }
+
+    private long readVarLong() {
+        long v = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[pos++];
+            v |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return v;
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    // ======== 无界面回放 ========
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("用法: java Game0_17.SessionReplay 录制文件 [--realtime] [--csv=输出.csv]");
+            return;
+        }
+        boolean realtime = false;
+        String csv = null;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--realtime")) realtime = true;
+            else if (args[i].startsWith("--csv=")) csv = args[i].substring(6);
+        }
+
+        SessionReplay replay = load(args[0]);
+        GameSimulation simulation = new GameSimulation(0L, replay.getTicksPerSecond(), replay.clock());
+        GameRenderer renderer = new GameRenderer(simulation, LittleDuck.createDefaults());
+        ImageRegistry.preloadAll();
+        renderer.setImages(ImageRegistry.get(ImageRegistry.BACKGROUND), ImageRegistry.get(ImageRegistry.LITTLE_DUCK),
+                ImageRegistry.get(ImageRegistry.RED_PACKET_SMALL), ImageRegistry.get(ImageRegistry.RED_PACKET_MIDDLE),
+                ImageRegistry.get(ImageRegistry.RED_PACKET_BIG));
+        Image donaldImg = ImageRegistry.get(ImageRegistry.DONALD);
+        renderer.preloadDonald(donaldImg);
+
+        List<Integer> results = new ArrayList<>();
+        simulation.setListener(new GameSimulation.Listener() {
+            public void onDebuffTriggered(DebuffType debuff) {}
+            public void onRoundEnded(int finalAmount, boolean doubled) { results.add(finalAmount); }
+            public void onPacketCaught(int x, int y, int amount) { renderer.getParticles().requestCatch(x, y, amount); }
+            public void onRedPacketRain(int count) { renderer.getParticles().requestRain(count); }
+        });
+
+        BufferedWriter out = csv != null ? new BufferedWriter(new FileWriter(csv)) : null;
+        if (out != null) {
+            out.write("tick,state,session_amount,donald_x,donald_y,packets,remaining_ms,tick_us,render_us");
+            out.newLine();
+        }
+
+        long[] frameNanos = new long[1024];
+        int frames = 0;
+        long checksum = 17;
+        long wallStart = System.nanoTime();
+        long clockStart = -1;
+        while (replay.feedNextTick(simulation)) {
+            if (realtime) {
+                if (clockStart < 0) clockStart = replay.getClockMicros();
+                long due = wallStart + (replay.getClockMicros() - clockStart) * 1000;
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    try {
+                        Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+            long t0 = System.nanoTime();
+            simulation.tick();
+            long t1 = System.nanoTime();
+            renderer.renderRetained(0.0, donaldImg, 0, replay.getTicksPerSecond(), replay.getTicksPerSecond());
+            long t2 = System.nanoTime();
+
+            if (frames == frameNanos.length) frameNanos = Arrays.copyOf(frameNanos, frames * 2);
+            frameNanos[frames++] = t2 - t0;
+
+            DonaldDuck donald = simulation.getDonald();
+            int packets = simulation.getRedPacketStore().pool().count();
+            checksum = checksum * 31 + simulation.getState().ordinal();
+            checksum = checksum * 31 + simulation.getSessionAmount();
+            checksum = checksum * 31 + donald.getX();
+            checksum = checksum * 31 + donald.getY();
+            checksum = checksum * 31 + packets;
+            checksum = checksum * 31 + simulation.getRemainingMillis();
+            if (out != null) {
+                out.write(replay.getTicks() + "," + simulation.getState() + "," + simulation.getSessionAmount() + ","
+                        + donald.getX() + "," + donald.getY() + "," + packets + "," + simulation.getRemainingMillis() + ","
+                        + (t1 - t0) / 1000 + "," + (t2 - t1) / 1000);
+                out.newLine();
+            }
+        }
+        double seconds = (System.nanoTime() - wallStart) / 1e9;
+        if (out != null) out.close();
+
+        long[] sorted = Arrays.copyOf(frameNanos, frames);
+        Arrays.sort(sorted);
+        System.out.printf("回放 %d 逻辑帧, %d 局, 耗时 %.2f 秒%n", frames, results.size(), seconds);
+        System.out.println("每局金额: " + results);
+        if (frames > 0) {
+            System.out.printf("每帧（逻辑 + 渲染）p50 %.0fus  p99 %.0fus  max %.0fus%n",
+                    sorted[frames / 2] / 1e3, sorted[Math.min(frames - 1, frames * 99 / 100)] / 1e3, sorted[frames - 1] / 1e3);
+        }
+        System.out.printf("状态校验和: %016x%n", checksum);
+    }
+}
@@ -5,6 +5,13 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.*;
 import java.sql.*;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 /**
  * 技能点名系统 v0.16
@@ -12,16 +19,28 @@ import java.sql.*;
  */
 public class SkillSystem extends Frame {
 
-
-    private String dbUrl;
-    private String dbUser;
-    private String dbPassword;
-
     private JTable statsTable;
     private DefaultTableModel tableModel;
     private JLabel totalCallLabel;
     private JLabel usageRateLabel;
 
+    // 点名历史：时间窗口内每只小鸭子的汇总，以及按时间倒序、每页 PAGE_SIZE 条的明细
+    private static final int PAGE_SIZE = 20;
+    private static final String[] WINDOW_NAMES = {"最近7天", "最近30天", "全部"};
+    private static final int[] WINDOW_DAYS = {7, 30, 0};
+    private JComboBox<String> windowBox;
+    private JComboBox<String> duckBox;
+    private DefaultTableModel summaryModel;
+    private DefaultTableModel historyModel;
+    private JButton prevPageBtn, nextPageBtn;
+    private JLabel pageLabel;
+    /** 每一页的 keyset 起点（上一页的最后一条），第一页为 null */
+    private final List<GameStore.CallRecord> pageCursors = new ArrayList<>();
+    private List<GameStore.CallRecord> currentPage = Collections.emptyList();
+    private boolean hasNextPage;
+    /** 最近一次统计/历史读取的请求号，返回时不是最新请求的结果直接丢掉 */
+    private int statsRequest, historyRequest;
+
     private Frame gameFrame;
 
     public SkillSystem() {
@@ -30,51 +49,47 @@ public class SkillSystem extends Frame {
 
     public SkillSystem(Frame gameFrame) {
         this.gameFrame = gameFrame;
+        // 统计数据来自与游戏共享的 GameStore，打开和读取都在后台线程上做
 
-        try {
-            dbUrl = GameFrame.DB_URL;
-            dbUser = GameFrame.DB_USER;
-            dbPassword = GameFrame.DB_PASSWORD;
-        } catch (NoClassDefFoundError e) {
-            dbUrl = "jdbc:mysql://localhost:3306/duck_game?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true";
-            dbUser = "root";
-            dbPassword = "thedangerinmyheart";  // 改成你的密码
-        }
-
-        initDatabase();
         initUI();
         loadStatsFromDB();
+        loadHistory();
         setVisible(true);
     }
 
-    private void initDatabase() {
-        try (Connection conn = DriverManager.getConnection(dbUrl, dbUser, dbPassword);
-             Statement stmt = conn.createStatement()) {
-
-            stmt.execute("CREATE TABLE IF NOT EXISTS skill_stats (" +
-                    "duck_name VARCHAR(20) PRIMARY KEY, " +
-                    "skill_name VARCHAR(50), " +
-                    "called_count INT DEFAULT 0, " +
-                    "used_count INT DEFAULT 0, " +
-                    "not_used_count INT DEFAULT 0" +
-                    ")");
-
-            String[] names = {"唐小哥", "唐老二", "唐小弟"};
-            String[] skills = {"速度+3", "体积变大", "金额x1.5"};
+    private interface Query<T> {
+        T run() throws SQLException;
+    }
 
-            for (int i = 0; i < names.length; i++) {
-                stmt.execute("INSERT IGNORE INTO skill_stats (duck_name, skill_name) VALUES ('"
-                        + names[i] + "', '" + skills[i] + "')");
+    /**
+     * 在后台线程上打开存储（可以重复调用）并执行 query，结果回到界面线程交给 onResult，出错交给 onError。
+     * 读之前要先 flush 写回队列的也在 query 里做，界面线程不等数据库
+     */
+    private <T> void query(Query<T> query, Consumer<T> onResult, Consumer<SQLException> onError) {
+        new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() throws SQLException {
+                GameStore.shared().open();
+                return query.run();
             }
 
-        } catch (SQLException e) {
-            System.err.println("数据库初始化失败: " + e.getMessage());
-        }
+            @Override
+            protected void done() {
+                try {
+                    onResult.accept(get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    onError.accept(cause instanceof SQLException ? (SQLException) cause : new SQLException(cause));
+                }
+            }
+        }.execute();
     }
 
     private void initUI() {
         setTitle("唐小鸭技能点名系统 v0.16");
-        setSize(650, 450);
+        setSize(760, 520);
         setLocationRelativeTo(null);
         setLayout(new BorderLayout(10, 10));
 
@@ -116,13 +131,21 @@ public class SkillSystem extends Frame {
 
         JScrollPane scrollPane = new JScrollPane(statsTable);
         scrollPane.setBorder(BorderFactory.createTitledBorder("技能使用统计"));
-        add(scrollPane, BorderLayout.CENTER);
+
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.setFont(new Font("微软雅黑", Font.PLAIN, 14));
+        tabs.addTab("累计统计", scrollPane);
+        tabs.addTab("点名历史", createHistoryPanel());
+        add(tabs, BorderLayout.CENTER);
 
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 10));
 
         JButton refreshBtn = new JButton("刷新数据");
         refreshBtn.setFont(new Font("微软雅黑", Font.PLAIN, 14));
-        refreshBtn.addActionListener(e -> loadStatsFromDB());
+        refreshBtn.addActionListener(e -> {
+            loadStatsFromDB();
+            loadHistory();
+        });
 
         JButton resetBtn = new JButton("重置统计");
         resetBtn.setFont(new Font("微软雅黑", Font.PLAIN, 14));
@@ -162,34 +185,39 @@ public class SkillSystem extends Frame {
     }
 
     private void loadStatsFromDB() {
+        int request = ++statsRequest;
+        query(() -> {
+            PersistenceQueue.shared().flush();
+            return GameStore.shared().loadSkillStats();
+        }, stats -> {
+            if (request == statsRequest) showStats(stats);
+        }, e -> {
+            if (request != statsRequest) return;
+            showStats(Collections.emptyList());
+            JOptionPane.showMessageDialog(this, "读取数据失败: " + e.getMessage(),
+                    "错误", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    private void showStats(List<GameStore.SkillStats> rows) {
         tableModel.setRowCount(0);
         int totalCalls = 0;
         int totalUsed = 0;
 
-        try (Connection conn = DriverManager.getConnection(dbUrl, dbUser, dbPassword);
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT * FROM skill_stats ORDER BY duck_name")) {
-
-            while (rs.next()) {
-                String name = rs.getString("duck_name");
-                String skill = rs.getString("skill_name");
-                if (skill == null) skill = "";
-                int called = rs.getInt("called_count");
-                int used = rs.getInt("used_count");
-                int notUsed = rs.getInt("not_used_count");
-                double rate = called > 0 ? (used * 100.0 / called) : 0;
-
-                tableModel.addRow(new Object[]{
-                        name, skill, called, used, notUsed, String.format("%.1f%%", rate)
-                });
+        for (GameStore.SkillStats stats : rows) {
+            String skill = stats.skillName;
+            if (skill == null) skill = "";
+            int called = stats.calledCount;
+            int used = stats.usedCount;
+            int notUsed = stats.notUsedCount;
+            double rate = called > 0 ? (used * 100.0 / called) : 0;
 
-                totalCalls += called;
-                totalUsed += used;
-            }
+            tableModel.addRow(new Object[]{
+                    stats.duckName, skill, called, used, notUsed, String.format("%.1f%%", rate)
+            });
 
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "读取数据失败: " + e.getMessage(),
-                    "错误", JOptionPane.ERROR_MESSAGE);
+            totalCalls += called;
+            totalUsed += used;
         }
 
         totalCallLabel.setText("总点名次数: " + totalCalls);
@@ -197,24 +225,147 @@ public class SkillSystem extends Frame {
         usageRateLabel.setText("平均使用率: " + String.format("%.1f%%", avgRate));
     }
 
+    private JPanel createHistoryPanel() {
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
+        windowBox = new JComboBox<>(WINDOW_NAMES);
+        String[] ducks = new String[GameStore.DUCK_NAMES.length + 1];
+        ducks[0] = "全部";
+        System.arraycopy(GameStore.DUCK_NAMES, 0, ducks, 1, GameStore.DUCK_NAMES.length);
+        duckBox = new JComboBox<>(ducks);
+        windowBox.addActionListener(e -> loadHistory());
+        duckBox.addActionListener(e -> loadHistory());
+        filterPanel.add(new JLabel("时间:"));
+        filterPanel.add(windowBox);
+        filterPanel.add(new JLabel("唐小鸭:"));
+        filterPanel.add(duckBox);
+
+        summaryModel = new DefaultTableModel(new String[]{"唐小鸭", "点名次数", "使用技能", "获得金额"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) { return false; }
+        };
+        JTable summaryTable = new JTable(summaryModel);
+        summaryTable.setRowHeight(22);
+        JScrollPane summaryScroll = new JScrollPane(summaryTable);
+        summaryScroll.setPreferredSize(new Dimension(0, 100));
+
+        JPanel northPanel = new JPanel(new BorderLayout());
+        northPanel.add(filterPanel, BorderLayout.NORTH);
+        northPanel.add(summaryScroll, BorderLayout.CENTER);
+        panel.add(northPanel, BorderLayout.NORTH);
+
+        historyModel = new DefaultTableModel(new String[]{"点名时间", "唐小鸭", "使用技能", "本局金额"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) { return false; }
+        };
+        JTable historyTable = new JTable(historyModel);
+        historyTable.setRowHeight(22);
+        panel.add(new JScrollPane(historyTable), BorderLayout.CENTER);
+
+        JPanel pagePanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 2));
+        prevPageBtn = new JButton("上一页");
+        nextPageBtn = new JButton("下一页");
+        pageLabel = new JLabel("第 1 页");
+        prevPageBtn.addActionListener(e -> {
+            pageCursors.remove(pageCursors.size() - 1);
+            loadHistoryPage();
+        });
+        nextPageBtn.addActionListener(e -> {
+            pageCursors.add(currentPage.get(currentPage.size() - 1));
+            loadHistoryPage();
+        });
+        pagePanel.add(prevPageBtn);
+        pagePanel.add(pageLabel);
+        pagePanel.add(nextPageBtn);
+        panel.add(pagePanel, BorderLayout.SOUTH);
+        return panel;
+    }
+
+    private long windowStartMillis() {
+        int days = WINDOW_DAYS[windowBox.getSelectedIndex()];
+        return days == 0 ? 0 : System.currentTimeMillis() - days * 24L * 60 * 60 * 1000;
+    }
+
+    /** 重新读取时间窗口内的汇总，并回到明细的第一页 */
+    private void loadHistory() {
+        int request = ++historyRequest;
+        long since = windowStartMillis();
+        pageCursors.clear();
+        pageCursors.add(null);
+        prevPageBtn.setEnabled(false);
+        nextPageBtn.setEnabled(false);
+        query(() -> {
+            PersistenceQueue.shared().flush();
+            return GameStore.shared().summarizeCalls(since);
+        }, summaries -> {
+            if (request != historyRequest) return;
+            summaryModel.setRowCount(0);
+            for (GameStore.CallSummary summary : summaries) {
+                summaryModel.addRow(new Object[]{
+                        summary.duckName, summary.calls, summary.usedCount, summary.totalAmount + "元"
+                });
+            }
+            loadHistoryPage();
+        }, e -> {
+            if (request != historyRequest) return;
+            summaryModel.setRowCount(0);
+            showHistoryPage(Collections.emptyList());
+            JOptionPane.showMessageDialog(this, "读取点名历史失败: " + e.getMessage(),
+                    "错误", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    /** 读取当前页：从上一页最后一条之后往前取，多取一条用来判断还有没有下一页；读完之前不能翻页 */
+    private void loadHistoryPage() {
+        int request = ++historyRequest;
+        String duck = duckBox.getSelectedIndex() == 0 ? null : (String) duckBox.getSelectedItem();
+        long since = windowStartMillis();
+        GameStore.CallRecord after = pageCursors.get(pageCursors.size() - 1);
+        prevPageBtn.setEnabled(false);
+        nextPageBtn.setEnabled(false);
+        query(() -> GameStore.shared().loadCallHistory(duck, since, after, PAGE_SIZE + 1), rows -> {
+            if (request == historyRequest) showHistoryPage(rows);
+        }, e -> {
+            if (request != historyRequest) return;
+            System.err.println("读取点名历史失败: " + e.getMessage());
+            showHistoryPage(Collections.emptyList());
+        });
+    }
+
+    private void showHistoryPage(List<GameStore.CallRecord> rows) {
+        hasNextPage = rows.size() > PAGE_SIZE;
+        currentPage = hasNextPage ? rows.subList(0, PAGE_SIZE) : rows;
+
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        historyModel.setRowCount(0);
+        for (GameStore.CallRecord call : currentPage) {
+            historyModel.addRow(new Object[]{
+                    format.format(new Date(call.callTimeMillis)), call.duckName,
+                    call.wasUsed ? "是" : "否", call.sessionAmount + "元"
+            });
+        }
+        pageLabel.setText("第 " + pageCursors.size() + " 页");
+        prevPageBtn.setEnabled(pageCursors.size() > 1);
+        nextPageBtn.setEnabled(hasNextPage);
+    }
+
     private void resetStats() {
         int confirm = JOptionPane.showConfirmDialog(this,
                 "确定要重置所有统计数据吗？\n此操作不可恢复！",
                 "确认重置", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
 
         if (confirm == JOptionPane.YES_OPTION) {
-            try (Connection conn = DriverManager.getConnection(dbUrl, dbUser, dbPassword);
-                 Statement stmt = conn.createStatement()) {
-
-                stmt.execute("UPDATE skill_stats SET called_count=0, used_count=0, not_used_count=0");
-
+            query(() -> {
+                // 先写入队列里的点名记录，免得重置后又被加回去
+                PersistenceQueue.shared().flush();
+                GameStore.shared().resetSkillStats();
+                return null;
+            }, done -> {
                 JOptionPane.showMessageDialog(this, "统计数据已重置", "完成", JOptionPane.INFORMATION_MESSAGE);
                 loadStatsFromDB();
-
-            } catch (SQLException e) {
-                JOptionPane.showMessageDialog(this, "重置失败: " + e.getMessage(),
-                        "错误", JOptionPane.ERROR_MESSAGE);
-            }
+            }, e -> JOptionPane.showMessageDialog(this, "重置失败: " + e.getMessage(),
+                    "错误", JOptionPane.ERROR_MESSAGE));
         }
     }
 
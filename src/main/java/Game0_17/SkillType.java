@@ -0,0 +1,8 @@
+package Game0_17;
+
+enum SkillType {
+    SPEED_UP("速度+3"), SIZE_UP("体积变大"), AMOUNT_UP("金额x1.5");
+    private String desc;
+    SkillType(String desc) { this.desc = desc; }
+    public String getDescription() { return desc; }
+}
@@ -0,0 +1,66 @@
+package Game0_17;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * 精灵图集
+ * 把缩放好的小图按行（shelf）打包进一张大图，每个精灵记为大图中的一个子矩形，
+ * 绘制时从同一张图上拷贝子矩形，减少切换纹理和零散小图占用的内存。
+ * 只接受不超过 {@link #MAX_SPRITE} 的精灵，装满后返回 -1，由调用方改用单独的图片。
+ */
+public class SpriteAtlas {
+
+    public static final int MAX_SPRITE = 256;
+    private static final int PADDING = 1;
+
+    private final BufferedImage image;
+    private int shelfX, shelfY, shelfHeight;
+    private int sprites;
+    private long usedPixels;
+
+    public SpriteAtlas(BufferedImage image) {
+        this.image = image;
+    }
+
+    /**
+     * 为 w x h 的精灵分配位置
+     * @return 打包后的位置 (x << 16 | y)，放不下时返回 -1
+     */
+    public int allocate(int w, int h) {
+        if (w > MAX_SPRITE || h > MAX_SPRITE) return -1;
+        if (shelfX + w > image.getWidth()) {
+            shelfY += shelfHeight + PADDING;
+            shelfX = 0;
+            shelfHeight = 0;
+        }
+        if (shelfY + h > image.getHeight()) return -1;
+        int pos = shelfX << 16 | shelfY;
+        shelfX += w + PADDING;
+        shelfHeight = Math.max(shelfHeight, h);
+        sprites++;
+        usedPixels += (long) w * h;
+        return pos;
+    }
+
+    /** 把精灵原样（包括透明度）写入分配到的位置 */
+    public void put(int pos, Image sprite, int w, int h) {
+        Graphics2D g = image.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(sprite, pos >>> 16, pos & 0xFFFF, w, h, null);
+        g.dispose();
+    }
+
+    /** 把位于 pos 的 w x h 精灵画到 (x, y)，不缩放 */
+    public void draw(Graphics g, int pos, int w, int h, int x, int y) {
+        int sx = pos >>> 16, sy = pos & 0xFFFF;
+        g.drawImage(image, x, y, x + w, y + h, sx, sy, sx + w, sy + h, null);
+    }
+
+    public int getSpriteCount() { return sprites; }
+
+    /** 已使用面积占整张图的比例 */
+    public double getUsage() {
+        return (double) usedPixels / ((long) image.getWidth() * image.getHeight());
+    }
+}
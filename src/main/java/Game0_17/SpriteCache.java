@@ -0,0 +1,149 @@
+package Game0_17;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * 预缩放精灵缓存
+ * 每张原图在每个实际用到的尺寸下只转换一次，转换成与屏幕兼容的图片（有透明通道的图片保留透明），
+ * 之后每帧都是不缩放的 drawImage，可以直接走显卡加速的拷贝。
+ * 新的尺寸第一次出现时（例如 SIZE_UP 把唐老鸭变成 80x80、换装后换了原图）才生成，不用手动失效。
+ * 小精灵（红包、唐老鸭、小鸭子）打包进同一张 SpriteAtlas，绘制时从图集拷贝子矩形；
+ * 背景这类大图和图集装不下的精灵仍是单独的图片。
+ * 只在渲染线程使用。
+ */
+public class SpriteCache {
+
+    private static final int ATLAS_SIZE = 1024;
+
+    /** 一张原图的所有缩放版本，尺寸种类很少，线性查找即可 */
+    private static class Entry {
+        int count;
+        int[] widths = new int[4];
+        int[] heights = new int[4];
+        int[] atlasPos = new int[4];    // 在图集中的位置，-1 表示单独的图片
+        Image[] images = new Image[4];
+    }
+
+    private final Map<Image, Entry> entries = new IdentityHashMap<>();
+    private final GraphicsConfiguration config;
+    private SpriteAtlas atlas;
+
+    /** 使用默认屏幕的配置；无界面环境下退化为普通的 BufferedImage */
+    public SpriteCache() {
+        this(GraphicsEnvironment.isHeadless() ? null
+                : GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration());
+    }
+
+    public SpriteCache(GraphicsConfiguration config) {
+        this.config = config;
+    }
+
+    /** 预先生成某个尺寸的精灵，启动时调用，避免第一次绘制时卡顿 */
+    public void preload(Image source, int w, int h) {
+        if (source != null && w > 0 && h > 0) slot(entry(source), source, w, h);
+    }
+
+    /** 画出缩放到 w x h 的精灵，source 为 null 时什么也不画并返回 false */
+    public boolean draw(Graphics g, Image source, int x, int y, int w, int h) {
+        if (source == null || w <= 0 || h <= 0) return false;
+        Entry e = entry(source);
+        int i = slot(e, source, w, h);
+        if (e.atlasPos[i] >= 0) atlas.draw(g, e.atlasPos[i], w, h, x, y);
+        else g.drawImage(e.images[i], x, y, null);
+        return true;
+    }
+
+    /** 丢弃所有缓存，例如显示器配置变化后 */
+    public void clear() {
+        entries.clear();
+        atlas = null;
+    }
+
+    /** 图集中的精灵数量 */
+    public int getAtlasSpriteCount() { return atlas != null ? atlas.getSpriteCount() : 0; }
+
+    private Entry entry(Image source) {
+        Entry e = entries.get(source);
+        if (e == null) {
+            e = new Entry();
+            entries.put(source, e);
+        }
+        return e;
+    }
+
+    /** 找到或生成 w x h 的版本，返回它在 entry 中的下标 */
+    private int slot(Entry e, Image source, int w, int h) {
+        for (int i = 0; i < e.count; i++) {
+            if (e.widths[i] == w && e.heights[i] == h) return i;
+        }
+        if (e.count == e.images.length) {
+            int n = e.count * 2;
+            e.widths = java.util.Arrays.copyOf(e.widths, n);
+            e.heights = java.util.Arrays.copyOf(e.heights, n);
+            e.atlasPos = java.util.Arrays.copyOf(e.atlasPos, n);
+            e.images = java.util.Arrays.copyOf(e.images, n);
+        }
+        Image scaled = scale(source, w, h, config);
+        if (atlas == null) atlas = new SpriteAtlas(createImage(ATLAS_SIZE, ATLAS_SIZE, Transparency.TRANSLUCENT));
+        int pos = atlas.allocate(w, h);
+        if (pos >= 0) {
+            atlas.put(pos, scaled, w, h);
+            scaled = null;
+        }
+        int i = e.count++;
+        e.widths[i] = w;
+        e.heights[i] = h;
+        e.atlasPos[i] = pos;
+        e.images[i] = scaled;
+        return i;
+    }
+
+    /**
+     * 缩放到 w x h，保留透明通道；缩小倍数很大时逐级减半，避免一次双线性缩放丢掉太多细节。
+     * config 为 null 时生成普通的 BufferedImage，ImageRegistry 在后台线程上也用这个方法缩放
+     */
+    static BufferedImage scale(Image source, int w, int h, GraphicsConfiguration config) {
+        int transparency = transparencyOf(source);
+        Image current = source;
+        int cw = source.getWidth(null), ch = source.getHeight(null);
+        if (cw <= 0 || ch <= 0) { cw = w; ch = h; }
+        while (cw / 2 >= w && ch / 2 >= h) {
+            cw /= 2;
+            ch /= 2;
+            current = scaleOnce(current, cw, ch, transparency, config);
+        }
+        return scaleOnce(current, w, h, transparency, config);
+    }
+
+    private static BufferedImage scaleOnce(Image source, int w, int h, int transparency, GraphicsConfiguration config) {
+        BufferedImage out = createImage(config, w, h, transparency);
+        Graphics2D g = out.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(source, 0, 0, w, h, null);
+        g.dispose();
+        return out;
+    }
+
+    /** 创建一张与屏幕兼容的空白图片 */
+    public BufferedImage createImage(int w, int h, int transparency) {
+        return createImage(config, w, h, transparency);
+    }
+
+    private static BufferedImage createImage(GraphicsConfiguration config, int w, int h, int transparency) {
+        return config != null
+                ? config.createCompatibleImage(w, h, transparency)
+                : new BufferedImage(w, h, transparency == Transparency.OPAQUE
+                        ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+    }
+
+    private static int transparencyOf(Image img) {
+        if (img instanceof BufferedImage) {
+            return ((BufferedImage) img).getColorModel().getTransparency();
+        }
+        return Transparency.TRANSLUCENT;
+    }
+}
@@ -0,0 +1,66 @@
+package Game0_17;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 启动时间线
+ * 记录启动过程中各阶段距 JVM 启动的毫秒数，首帧画出且数据库就绪（或失败）后打印一行报告，
+ * 每次启动都会输出，便于对比数据库慢或不可用时窗口多久能出现。
+ */
+public final class StartupTimeline {
+
+    private static final List<String> names = new ArrayList<>();
+    private static final List<Long> times = new ArrayList<>();
+    private static long firstFrameMillis = -1, databaseMillis = -1;
+    private static boolean databaseOk;
+    private static boolean reported;
+    private static volatile boolean firstFrameSeen;
+
+    private StartupTimeline() {}
+
+    /** JVM 启动以来的毫秒数 */
+    public static long uptimeMillis() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    /** 记录一个启动阶段 */
+    public static synchronized void mark(String name) {
+        names.add(name);
+        times.add(uptimeMillis());
+    }
+
+    /** 第一帧已经显示到屏幕上，每帧调用，只有第一次有效 */
+    public static void firstFrame() {
+        if (!firstFrameSeen) recordFirstFrame();
+    }
+
+    private static synchronized void recordFirstFrame() {
+        if (firstFrameSeen) return;
+        firstFrameSeen = true;
+        mark("首帧");
+        firstFrameMillis = times.get(times.size() - 1);
+        reportIfDone();
+    }
+
+    /** 数据库建表和读取金额已完成，ok 为 false 表示连接失败 */
+    public static synchronized void databaseDone(boolean ok) {
+        mark(ok ? "数据库就绪" : "数据库不可用");
+        databaseMillis = times.get(times.size() - 1);
+        databaseOk = ok;
+        reportIfDone();
+    }
+
+    private static void reportIfDone() {
+        if (reported || firstFrameMillis < 0 || databaseMillis < 0) return;
+        reported = true;
+        StringBuilder sb = new StringBuilder("[启动] 首帧 ").append(firstFrameMillis).append("ms，")
+                .append(databaseOk ? "数据库就绪 " : "数据库不可用 ").append(databaseMillis).append("ms |");
+        for (int i = 0; i < names.size(); i++) {
+            sb.append(' ').append(names.get(i)).append(' ').append(times.get(i)).append("ms");
+            if (i < names.size() - 1) sb.append(',');
+        }
+        System.out.println(sb);
+    }
+}
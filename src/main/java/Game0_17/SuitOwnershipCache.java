@@ -0,0 +1,154 @@
+package Game0_17;
+
+import javax.swing.SwingUtilities;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * 套装拥有情况的进程级缓存
+ * 启动时在后台从 GameStore 读一次已购买的套装，之后换装按钮和商店的检查都只查内存里的集合，从不等待加载；
+ * 还没加载完时只认本进程买的套装，界面用 {@link #whenLoaded(Runnable)} 在加载完成后刷新按钮。
+ * 购买时直接更新缓存，购买记录和扣款在同一个事务里写入存储（见 GameFrame.purchaseSuit）；本进程里买过的套装始终算已拥有，
+ * 所以重新加载和购买同时发生也不会把刚买的套装丢掉。
+ * 数据被别处修改时用 {@link #refresh()} 重新加载，或 {@link #invalidate()} 让下一次检查重新加载。
+ */
+public final class SuitOwnershipCache {
+
+    private static final Executor loader = r -> {
+        Thread t = new Thread(r, "duck-suit-cache");
+        t.setDaemon(true);
+        t.start();
+    };
+
+    private static final SuitOwnershipCache shared = new SuitOwnershipCache(GameStore.shared());
+
+    public static SuitOwnershipCache shared() {
+        return shared;
+    }
+
+    private final GameStore store;
+    /** 从存储加载的套装加上本进程买的套装，整体替换，读的时候不加锁 */
+    private volatile Set<String> owned = Collections.emptySet();
+    private volatile boolean loaded;
+    /** 本进程里买过的套装 */
+    private final Set<String> purchasedHere = new HashSet<>();
+    /** 正在进行的加载，没有时为 null */
+    private CompletableFuture<Void> loading;
+    /** 检查时自动开始过加载；失败后不再自动重试，等显式的 refresh() */
+    private boolean autoLoadStarted;
+    /** 等加载完成后在界面线程上执行的任务 */
+    private final List<Runnable> onLoaded = new ArrayList<>();
+    /** invalidate() 时加一，之前开始的加载结果作废 */
+    private int generation;
+    private long loads;
+    private long lastLoadMillis;
+
+    public SuitOwnershipCache(GameStore store) {
+        this.store = store;
+    }
+
+    /** 套装是否已拥有；只查内存，还没加载时在后台开始加载（最多自动开始一次） */
+    public boolean isOwned(String suitName) {
+        if (!loaded) ensureLoading();
+        return owned.contains(suitName);
+    }
+
+    /** 当前拥有的所有套装 */
+    public Set<String> getOwned() {
+        if (!loaded) ensureLoading();
+        return owned;
+    }
+
+    /** 下一次加载成功后在界面线程上执行 action；已经加载时直接排到界面线程上 */
+    public void whenLoaded(Runnable action) {
+        synchronized (this) {
+            if (!loaded) {
+                onLoaded.add(action);
+                action = null;
+            }
+        }
+        if (action != null) SwingUtilities.invokeLater(action);
+        else ensureLoading();
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /** 购买记录已经写入存储（和扣款在同一个事务里），只更新缓存 */
+    public synchronized void markOwned(String suitName) {
+        purchasedHere.add(suitName);
+        Set<String> next = new HashSet<>(owned);
+        next.add(suitName);
+        owned = Collections.unmodifiableSet(next);
+    }
+
+    /** 在后台重新加载；已经在加载时返回同一个任务 */
+    public synchronized CompletableFuture<Void> refresh() {
+        if (loading == null) {
+            int gen = generation;
+            CompletableFuture<Void> task = CompletableFuture.runAsync(() -> load(gen), loader);
+            loading = task;
+            task.whenComplete((v, e) -> {
+                synchronized (this) {
+                    if (loading == task) loading = null;
+                }
+                if (e != null) System.err.println(e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            });
+        }
+        return loading;
+    }
+
+    /** 丢掉缓存的存储数据，下一次检查前重新加载（本进程买的套装保留） */
+    public void invalidate() {
+        synchronized (this) {
+            generation++;
+            loaded = false;
+            loading = null;
+        }
+        refresh();
+    }
+
+    /** 已加载的次数和最近一次加载耗时，用于排查 */
+    public synchronized long getLoadCount() { return loads; }
+    public synchronized long getLastLoadMillis() { return lastLoadMillis; }
+
+    private void load(int gen) {
+        long start = System.nanoTime();
+        Set<String> fromStore;
+        try {
+            store.open();
+            fromStore = store.loadPurchasedSuits();
+        } catch (SQLException e) {
+            throw new IllegalStateException("加载套装购买记录失败: " + e.getMessage(), e);
+        }
+        List<Runnable> ready;
+        synchronized (this) {
+            if (gen != generation) return;
+            Set<String> next = new HashSet<>(fromStore);
+            next.addAll(purchasedHere);
+            owned = Collections.unmodifiableSet(next);
+            loaded = true;
+            loads++;
+            lastLoadMillis = (System.nanoTime() - start) / 1_000_000;
+            ready = new ArrayList<>(onLoaded);
+            onLoaded.clear();
+        }
+        for (Runnable action : ready) SwingUtilities.invokeLater(action);
+    }
+
+    /** 还没加载、也没有自动加载过时在后台开始一次加载 */
+    private void ensureLoading() {
+        synchronized (this) {
+            if (loaded || autoLoadStarted) return;
+            autoLoadStarted = true;
+        }
+        refresh();
+    }
+}
@@ -0,0 +1,73 @@
+package Game0_17;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * 预渲染的一行文字
+ * 文字只在内容变化时重新画到一张透明图片上，之后每帧只是一次 drawImage，
+ * 渲染路径上不再创建 Font、不再拼接字符串。
+ * 调用方用一个 long 作为内容的“版本号”（通常就是要显示的数值），版本没变就不用重建文字。
+ */
+public class TextSprite {
+
+    /** 只用来取字体度量的画布 */
+    private static final Graphics2D METRICS_GRAPHICS =
+            new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+
+    private final Font font;
+    private final Color color;
+    private BufferedImage image;
+    private int ascent;
+    private long key;
+    private boolean valid;
+
+    public TextSprite(Font font, Color color) {
+        this.font = font;
+        this.color = color;
+    }
+
+    /** 固定文字，创建时直接渲染 */
+    public TextSprite(Font font, Color color, String text) {
+        this(font, color);
+        set(0, text);
+    }
+
+    /** 内容版本是否与当前图片不同，不同时调用方需要调用 {@link #set} */
+    public boolean isStale(long key) {
+        return !valid || this.key != key;
+    }
+
+    public void set(long key, String text) {
+        this.key = key;
+        this.valid = true;
+        FontMetrics fm;
+        synchronized (METRICS_GRAPHICS) {
+            fm = METRICS_GRAPHICS.getFontMetrics(font);
+        }
+        ascent = fm.getAscent();
+        int w = Math.max(1, fm.stringWidth(text));
+        int h = Math.max(1, fm.getAscent() + fm.getDescent());
+        if (image == null || image.getWidth() < w || image.getHeight() < h) {
+            image = new BufferedImage(Math.max(w, image == null ? 0 : image.getWidth()), h, BufferedImage.TYPE_INT_ARGB);
+        }
+        Graphics2D g = image.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g.setComposite(AlphaComposite.SrcOver);
+        g.setFont(font);
+        g.setColor(color);
+        g.drawString(text, 0, ascent);
+        g.dispose();
+    }
+
+    /** 以 (x, baselineY) 绘制时覆盖区域的上边界 */
+    public int top(int baselineY) { return baselineY - ascent; }
+    public int width() { return image != null ? image.getWidth() : 0; }
+    public int height() { return image != null ? image.getHeight() : 0; }
+
+    /** 与 drawString 相同的坐标约定：y 为基线位置 */
+    public void draw(Graphics g, int x, int baselineY) {
+        if (image != null) g.drawImage(image, x, baselineY - ascent, null);
+    }
+}